@@ -1,11 +1,14 @@
 package com.costanzo.libraryapi;
 
+import com.costanzo.libraryapi.config.LoanProperties;
 import com.costanzo.libraryapi.service.EmailService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -14,8 +17,12 @@ import java.util.List;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableConfigurationProperties(LoanProperties.class)
 public class LibraryApiApplication{
 
+	//capacidade da linha do tempo de inicialização exposta em /actuator/startup
+	private static final int STARTUP_STEPS_CAPACITY = 4096;
+
 	@Bean
 	public ModelMapper modelMapper(){
 		return new ModelMapper();
@@ -23,7 +30,9 @@ public class LibraryApiApplication{
 
 
 	public static void main(String[] args) {
-		SpringApplication.run(LibraryApiApplication.class, args);
+		SpringApplication application = new SpringApplication(LibraryApiApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY));
+		application.run(args);
 	}
 
 }
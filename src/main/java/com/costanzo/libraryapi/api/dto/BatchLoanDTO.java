@@ -0,0 +1,21 @@
+package com.costanzo.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLoanDTO {
+    @NotEmpty
+    private String customer;
+    private String email;
+    @NotEmpty
+    private List<String> isbns;
+}
@@ -0,0 +1,18 @@
+package com.costanzo.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityDTO {
+    private Long id;
+    private String isbn;
+    private boolean found;
+    private Boolean available;
+    private BookDTO book;
+}
@@ -0,0 +1,19 @@
+package com.costanzo.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanResultDTO {
+
+    public enum Status { CREATED, BOOK_NOT_FOUND, ALREADY_LOANED }
+
+    private String isbn;
+    private Long loanId;
+    private Status status;
+}
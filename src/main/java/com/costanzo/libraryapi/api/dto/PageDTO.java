@@ -0,0 +1,35 @@
+package com.costanzo.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+//envelope compacto da página: só os campos de topo do antigo PageImpl, sem pageable e sort
+@Getter
+@AllArgsConstructor
+public class PageDTO<T> {
+
+    private List<T> content;
+
+    private int number;
+
+    private int size;
+
+    private long totalElements;
+
+    private int totalPages;
+
+    public static <T> PageDTO<T> of(List<T> content, Pageable pageable, long total) {
+        if (pageable.isUnpaged()) {
+            return new PageDTO<>(content, 0, content.size(), total, 1);
+        }
+        //mesmo ajuste do PageImpl quando a última página vem incompleta
+        long totalElements = !content.isEmpty() && pageable.getOffset() + pageable.getPageSize() > total
+                ? pageable.getOffset() + content.size()
+                : total;
+        int totalPages = (int) Math.ceil((double) totalElements / pageable.getPageSize());
+        return new PageDTO<>(content, pageable.getPageNumber(), pageable.getPageSize(), totalElements, totalPages);
+    }
+}
@@ -0,0 +1,17 @@
+package com.costanzo.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ReturnLoansDTO {
+    private List<Long> ids;
+    private List<String> isbns;
+}
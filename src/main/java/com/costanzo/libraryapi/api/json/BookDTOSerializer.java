@@ -0,0 +1,44 @@
+package com.costanzo.libraryapi.api.json;
+
+import com.costanzo.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+//escreve os campos direto no gerador, sem introspecção do bean
+@JsonComponent
+public class BookDTOSerializer extends StdSerializer<BookDTO> {
+
+    public BookDTOSerializer() {
+        super(BookDTO.class);
+    }
+
+    @Override
+    public void serialize(BookDTO book, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(book, gen);
+    }
+
+    static void write(BookDTO book, JsonGenerator gen) throws IOException {
+        if (book == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartObject();
+        writeNumber(gen, "id", book.getId());
+        gen.writeStringField("title", book.getTitle());
+        gen.writeStringField("author", book.getAuthor());
+        gen.writeStringField("isbn", book.getIsbn());
+        gen.writeEndObject();
+    }
+
+    static void writeNumber(JsonGenerator gen, String field, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(field);
+        } else {
+            gen.writeNumberField(field, value);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.costanzo.libraryapi.api.json;
+
+import com.costanzo.libraryapi.api.dto.LoanDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+@JsonComponent
+public class LoanDTOSerializer extends StdSerializer<LoanDTO> {
+
+    public LoanDTOSerializer() {
+        super(LoanDTO.class);
+    }
+
+    @Override
+    public void serialize(LoanDTO loan, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        BookDTOSerializer.writeNumber(gen, "id", loan.getId());
+        gen.writeStringField("isbn", loan.getIsbn());
+        gen.writeStringField("customer", loan.getCustomer());
+        gen.writeStringField("email", loan.getEmail());
+        gen.writeFieldName("book");
+        BookDTOSerializer.write(loan.getBook(), gen);
+        gen.writeEndObject();
+    }
+}
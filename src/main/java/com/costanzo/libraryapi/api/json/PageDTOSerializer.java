@@ -0,0 +1,45 @@
+package com.costanzo.libraryapi.api.json;
+
+import com.costanzo.libraryapi.api.dto.PageDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+
+@JsonComponent
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class PageDTOSerializer extends StdSerializer<PageDTO> {
+
+    public PageDTOSerializer() {
+        super(PageDTO.class);
+    }
+
+    @Override
+    public void serialize(PageDTO page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("content");
+        //o serializer é resolvido uma vez por classe, não a cada item
+        Class<?> type = null;
+        JsonSerializer<Object> serializer = null;
+        for (Object item : page.getContent()) {
+            if (item == null) {
+                gen.writeNull();
+                continue;
+            }
+            if (item.getClass() != type) {
+                type = item.getClass();
+                serializer = provider.findTypedValueSerializer(type, true, null);
+            }
+            serializer.serialize(item, gen, provider);
+        }
+        gen.writeEndArray();
+        gen.writeNumberField("number", page.getNumber());
+        gen.writeNumberField("size", page.getSize());
+        gen.writeNumberField("totalElements", page.getTotalElements());
+        gen.writeNumberField("totalPages", page.getTotalPages());
+        gen.writeEndObject();
+    }
+}
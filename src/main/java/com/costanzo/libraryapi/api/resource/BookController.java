@@ -1,9 +1,13 @@
 package com.costanzo.libraryapi.api.resource;
 
+import com.costanzo.libraryapi.api.dto.BookAvailabilityDTO;
 import com.costanzo.libraryapi.api.dto.BookDTO;
 import com.costanzo.libraryapi.api.dto.LoanDTO;
+import com.costanzo.libraryapi.api.dto.PageDTO;
+import com.costanzo.libraryapi.cache.BookSearchCache;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
 import com.costanzo.libraryapi.service.BookService;
 
 import com.costanzo.libraryapi.service.LoanService;
@@ -15,14 +19,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -39,6 +48,10 @@ public class BookController {
 
         private final LoanService loanservice;
 
+        private final HotKeyTracker hotKeys;
+
+        private static final int MAX_MULTI_GET = 100;
+
         @PostMapping
         @ResponseStatus(HttpStatus.CREATED)
         @ApiOperation("Creates a book")
@@ -53,6 +66,7 @@ public class BookController {
         @ApiOperation("Obtains a book details by id")
         public BookDTO get(@PathVariable Long id) {
             log.info("obtaining details for book id: {}", id);
+            hotKeys.record(HotKeyTracker.Stream.BOOK, id);
             return  service
                         .getByID(id)
                         .map(book -> modelMapper.map(book, BookDTO.class))
@@ -60,6 +74,54 @@ public class BookController {
 
         }
 
+        @GetMapping("multi")
+        @ApiOperation("Obtains several books by ids or isbns, with their loan availability")
+        public List<BookAvailabilityDTO> getMany(@RequestParam(required = false) List<Long> ids,
+                                                 @RequestParam(required = false) List<String> isbns) {
+            int requested = (ids == null ? 0 : ids.size()) + (isbns == null ? 0 : isbns.size());
+            if (requested == 0 || requested > MAX_MULTI_GET) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Between 1 and " + MAX_MULTI_GET + " ids or isbns must be informed");
+            }
+            List<Book> books = new ArrayList<>();
+            if (ids != null && !ids.isEmpty()) {
+                books.addAll(service.getByIDs(new LinkedHashSet<>(ids)));
+            }
+            if (isbns != null && !isbns.isEmpty()) {
+                books.addAll(service.getBooksByIsbns(new LinkedHashSet<>(isbns)));
+            }
+            Map<Long, Book> byId = new HashMap<>();
+            Map<String, Book> byIsbn = new HashMap<>();
+            books.forEach(book -> {
+                byId.put(book.getId(), book);
+                byIsbn.put(book.getIsbn(), book);
+            });
+            Set<Long> loaned = loanservice.getLoanedBookIds(byId.keySet());
+
+            //resposta na mesma ordem do pedido, com os não encontrados marcados
+            List<BookAvailabilityDTO> result = new ArrayList<>(requested);
+            if (ids != null) {
+                ids.forEach(id -> result.add(availability(byId.get(id), id, null, loaned)));
+            }
+            if (isbns != null) {
+                isbns.forEach(isbn -> result.add(availability(byIsbn.get(isbn), null, isbn, loaned)));
+            }
+            return result;
+        }
+
+        private BookAvailabilityDTO availability(Book book, Long id, String isbn, Set<Long> loaned) {
+            if (book == null) {
+                return BookAvailabilityDTO.builder().id(id).isbn(isbn).found(false).build();
+            }
+            return BookAvailabilityDTO.builder()
+                    .id(book.getId())
+                    .isbn(book.getIsbn())
+                    .found(true)
+                    .available(!loaned.contains(book.getId()))
+                    .book(modelMapper.map(book, BookDTO.class))
+                    .build();
+        }
+
         @DeleteMapping("{id}")
         @ResponseStatus(HttpStatus.NO_CONTENT)
         @ApiOperation("Deletes a book by Id")
@@ -69,8 +131,9 @@ public class BookController {
         public void delete(@PathVariable Long id){
 
             log.info("deleteting book of id: {}", id);
-            Book book = service.getByID(id).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
-            service.delete(book);
+            if (!service.deleteById(id)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            }
         }
 
 
@@ -80,31 +143,47 @@ public class BookController {
         public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto){
 
                log.info("updating book of id: {}", id);
-               return service.getByID(id).map(book -> {
-                       book.setAuthor(dto.getAuthor());
-                       book.setTitle(dto.getTitle());
-                       book = service.update(book);
-                       return modelMapper.map(book, BookDTO.class);
-
-               }).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
+               Book changes = Book.builder().title(dto.getTitle()).author(dto.getAuthor()).build();
+               return service.updateById(id, changes)
+                       .map(book -> modelMapper.map(book, BookDTO.class))
+                       .orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
 
         }
 
         @GetMapping
         @ApiOperation("Find books by params")
-        public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
+        public PageDTO<BookDTO> find(BookDTO dto, Pageable pageRequest,
+                                     @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl){
                 Book filter = modelMapper.map(dto, Book.class);
-                Page<Book> result = service.find(filter, pageRequest);
+                hotKeys.recordSearchTerm(dto.getTitle());
+                hotKeys.recordSearchTerm(dto.getAuthor());
+                Page<Book> result;
+                //Cache-Control: no-cache força a consulta no banco
+                if (cacheControl != null && cacheControl.contains("no-cache")) {
+                    try (BookSearchCache.Scope bypass = BookSearchCache.bypass()) {
+                        result = service.find(filter, pageRequest);
+                    }
+                } else {
+                    result = service.find(filter, pageRequest);
+                }
                 List<BookDTO> list = result
                         .get()
                         .map(entity -> modelMapper.map(entity, BookDTO.class)).collect(Collectors.toList());
                 //List<BookDTO> list = result.getContent().stream().map(entity -> modelMapper.map(entity, BookDTO.class)).collect(Collectors.toList());
-                return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+                return PageDTO.of(list, pageRequest, result.getTotalElements());
         }
         
+        @GetMapping(params = "fields")
+        @ApiOperation("Find books by params returning only the requested fields")
+        public PageDTO<Map<String, Object>> findFields(BookDTO dto, @RequestParam List<String> fields, Pageable pageRequest){
+                Book filter = modelMapper.map(dto, Book.class);
+                Page<Map<String, Object>> result = service.findFields(filter, fields, pageRequest);
+                return PageDTO.of(result.getContent(), pageRequest, result.getTotalElements());
+        }
+
         @GetMapping("{id}/loans")
         @ApiOperation("Find loan of book by Id")
-        public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
+        public PageDTO<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
               Book book =  service.getByID(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
               Page<Loan> result = loanservice.getLoansByBook(book, pageable);
               List<LoanDTO> list = result.get().map(
@@ -116,7 +195,7 @@ public class BookController {
                               return loanDTO;
                       }).collect(Collectors.toList());
 
-              return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+              return PageDTO.of(list, pageable, result.getTotalElements());
         }
 
 
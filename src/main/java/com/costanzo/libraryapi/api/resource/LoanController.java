@@ -1,25 +1,34 @@
 package com.costanzo.libraryapi.api.resource;
 
+import com.costanzo.libraryapi.api.dto.BatchLoanDTO;
 import com.costanzo.libraryapi.api.dto.BookDTO;
 import com.costanzo.libraryapi.api.dto.LoanDTO;
 import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.api.dto.LoanResultDTO;
+import com.costanzo.libraryapi.api.dto.PageDTO;
+import com.costanzo.libraryapi.api.dto.ReturnLoansDTO;
 import com.costanzo.libraryapi.api.dto.ReturnedLoanDTO;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
 import com.costanzo.libraryapi.service.BookService;
 import com.costanzo.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,10 +40,13 @@ public class LoanController {
     private final LoanService service;
     private final BookService bookservice;
     private final ModelMapper modelMapper;
+    private final HotKeyTracker hotKeys;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody LoanDTO dto){
+        hotKeys.record(HotKeyTracker.Stream.ISBN, dto.getIsbn());
+        hotKeys.record(HotKeyTracker.Stream.CUSTOMER, dto.getCustomer());
         Book book = bookservice
                 .getBookByIsbn(dto.getIsbn())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
@@ -46,16 +58,58 @@ public class LoanController {
         return entity.getId();
     }
 
+    @PostMapping("batch")
+    public List<LoanResultDTO> createBatch(@RequestBody @Valid BatchLoanDTO dto){
+        Map<String, Book> books = bookservice.getBooksByIsbns(new LinkedHashSet<>(dto.getIsbns()))
+                .stream()
+                .collect(Collectors.toMap(Book::getIsbn, book -> book, (first, second) -> first));
+
+        List<Loan> loans = books.values().stream()
+                .map(book -> Loan.builder()
+                        .book(book)
+                        .customer(dto.getCustomer())
+                        .customerEmail(dto.getEmail())
+                        .loanDate(LocalDate.now()).build())
+                .collect(Collectors.toList());
+        Map<String, Long> created = new HashMap<>();
+        service.saveAllAvailable(loans).forEach(loan -> created.put(loan.getBook().getIsbn(), loan.getId()));
+
+        List<LoanResultDTO> results = new ArrayList<>(dto.getIsbns().size());
+        for (String isbn : dto.getIsbns()) {
+            LoanResultDTO.Status status;
+            //o mesmo isbn repetido no pedido gera um único empréstimo
+            Long loanId = created.remove(isbn);
+            if (!books.containsKey(isbn)) {
+                status = LoanResultDTO.Status.BOOK_NOT_FOUND;
+            } else if (loanId == null) {
+                status = LoanResultDTO.Status.ALREADY_LOANED;
+            } else {
+                status = LoanResultDTO.Status.CREATED;
+            }
+            results.add(LoanResultDTO.builder().isbn(isbn).loanId(loanId).status(status).build());
+        }
+        return results;
+    }
+
     @PatchMapping("{id}")
     public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto){
-        Loan loan = service.getById(id).orElseThrow(()-> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        loan.setReturned(dto.getReturned());
+        if (!service.updateReturned(id, dto.getReturned())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
 
-        service.update(loan);
+    @PostMapping("returns")
+    public Integer returnBooks(@RequestBody ReturnLoansDTO dto){
+        boolean noIds = dto.getIds() == null || dto.getIds().isEmpty();
+        boolean noIsbns = dto.getIsbns() == null || dto.getIsbns().isEmpty();
+        if (noIds && noIsbns) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Loan ids or isbns must be informed");
+        }
+        return service.returnLoans(dto.getIds(), dto.getIsbns());
     }
 
     @GetMapping
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest){
+    public PageDTO<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest){
         Page<Loan> result = service.find(dto, pageRequest);
         List<LoanDTO> loans = result
                 .get()
@@ -67,8 +121,12 @@ public class LoanController {
                     return loanDTO;
                 }).collect(Collectors.toList());
 
-        return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
+        return PageDTO.of(loans, pageRequest, result.getTotalElements());
     }
 
-
+    @GetMapping(params = "fields")
+    public PageDTO<Map<String, Object>> findFields(LoanFilterDTO dto, @RequestParam List<String> fields, Pageable pageRequest){
+        Page<Map<String, Object>> result = service.findFields(dto, fields, pageRequest);
+        return PageDTO.of(result.getContent(), pageRequest, result.getTotalElements());
+    }
 }
@@ -0,0 +1,211 @@
+package com.costanzo.libraryapi.archive;
+
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.entity.LoanArchiveSegment;
+import com.costanzo.libraryapi.model.repository.LoanArchiveSegmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//empréstimos devolvidos e arquivados, em segmentos imutáveis gravados no banco junto com o delete da tabela quente
+@Component
+public class LoanArchive {
+
+    private static final int MAGIC = 0x4C4F414E; // "LOAN"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final History EMPTY = new History(Collections.emptyList(), Collections.emptyList());
+
+    private final LoanArchiveSegmentRepository repository;
+
+    //histórico arquivado por livro, já descompactado e ordenado
+    private final Map<Long, History> history;
+
+    public LoanArchive(LoanArchiveSegmentRepository repository,
+                       @Value("${application.archive.loans.cache-books:1000}") int cacheBooks) {
+        this.repository = repository;
+        this.history = new LinkedHashMap<Long, History>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, History> eldest) {
+                return size() > cacheBooks;
+            }
+        };
+    }
+
+    //deve ser chamado na transação que remove os empréstimos da tabela quente
+    public LoanArchiveSegment write(List<Loan> loans) {
+        Set<Long> bookIds = loans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toSet());
+        return repository.save(LoanArchiveSegment.builder()
+                .rows(loans.size())
+                .bookIds(bookIds)
+                .data(encode(loans))
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    public List<Loan> findByBookId(Long bookId) {
+        return history(bookId).loans.stream().map(LoanArchive::copy).collect(Collectors.toList());
+    }
+
+    //só as linhas pedidas viram cópias; sem order, mais recentes primeiro
+    public Page<Loan> findByBookId(Long bookId, Comparator<Loan> order, long offset, int limit) {
+        List<Loan> loans = history(bookId).loans;
+        Stream<Loan> sorted = order == null ? loans.stream() : loans.stream().sorted(order);
+        List<Loan> content = sorted.skip(offset).limit(limit).map(LoanArchive::copy).collect(Collectors.toList());
+        return new PageImpl<>(content, Pageable.unpaged(), loans.size());
+    }
+
+    //o índice é consultado sempre: um segmento gravado por outra instância invalida o histórico guardado aqui
+    private History history(Long bookId) {
+        List<Long> segmentIds = repository.findIdsByBookId(bookId);
+        if (segmentIds.isEmpty()) {
+            return EMPTY;
+        }
+        History cached;
+        synchronized (history) {
+            cached = history.get(bookId);
+        }
+        if (cached == null || !cached.segmentIds.equals(segmentIds)) {
+            cached = new History(segmentIds, load(bookId, segmentIds));
+            synchronized (history) {
+                history.put(bookId, cached);
+            }
+        }
+        return cached;
+    }
+
+    public void clear() {
+        synchronized (history) {
+            history.clear();
+        }
+    }
+
+    private List<Loan> load(Long bookId, List<Long> segmentIds) {
+        List<Loan> loans = new ArrayList<>();
+        for (LoanArchiveSegment segment : repository.findAllById(segmentIds)) {
+            try {
+                decode(segment, bookId, loans::add);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read loan archive segment " + segment.getId(), e);
+            }
+        }
+        //mais recentes primeiro, como no histórico da tabela quente
+        loans.sort(Comparator.comparing(Loan::getLoanDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Loan::getId, Comparator.reverseOrder()));
+        return loans;
+    }
+
+    private static byte[] encode(List<Loan> loans) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream header = new DataOutputStream(bytes)) {
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.flush();
+
+            GZIPOutputStream gzip = new GZIPOutputStream(bytes, 64 * 1024);
+            DataOutputStream columns = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+            for (Loan loan : loans) columns.writeLong(loan.getId());
+            for (Loan loan : loans) columns.writeLong(loan.getBook().getId());
+            for (Loan loan : loans) columns.writeLong(loan.getLoanDate() == null ? Long.MIN_VALUE : loan.getLoanDate().toEpochDay());
+            for (Loan loan : loans) writeString(columns, loan.getCustomer());
+            for (Loan loan : loans) writeString(columns, loan.getCustomerEmail());
+            columns.flush();
+            gzip.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void decode(LoanArchiveSegment segment, Long bookId, Consumer<Loan> consumer) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(segment.getData());
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a loan archive segment: " + segment.getId());
+        }
+        int rows = segment.getRows();
+
+        DataInputStream columns = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 64 * 1024), 64 * 1024));
+        long[] ids = new long[rows];
+        long[] bookIds = new long[rows];
+        long[] loanDates = new long[rows];
+        for (int i = 0; i < rows; i++) ids[i] = columns.readLong();
+        for (int i = 0; i < rows; i++) bookIds[i] = columns.readLong();
+        for (int i = 0; i < rows; i++) loanDates[i] = columns.readLong();
+        String[] customers = new String[rows];
+        String[] emails = new String[rows];
+        for (int i = 0; i < rows; i++) customers[i] = readString(columns);
+        for (int i = 0; i < rows; i++) emails[i] = readString(columns);
+
+        for (int i = 0; i < rows; i++) {
+            if (bookIds[i] != bookId) {
+                continue;
+            }
+            consumer.accept(Loan.builder()
+                    .id(ids[i])
+                    .customer(customers[i])
+                    .customerEmail(emails[i])
+                    .loanDate(loanDates[i] == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(loanDates[i]))
+                    .returned(true)
+                    .build());
+        }
+    }
+
+    private static Loan copy(Loan loan) {
+        return Loan.builder()
+                .id(loan.getId())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .loanDate(loan.getLoanDate())
+                .returned(loan.getReturned())
+                .build();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class History {
+
+        private final List<Long> segmentIds;
+
+        private final List<Loan> loans;
+
+        private History(List<Long> segmentIds, List<Loan> loans) {
+            this.segmentIds = segmentIds;
+            this.loans = loans;
+        }
+    }
+}
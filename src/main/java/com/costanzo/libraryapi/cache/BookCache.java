@@ -0,0 +1,182 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//cópia em memória do catálogo, por id e por filial e isbn; entra e sai sempre como cópia sem empréstimos
+@Component
+public class BookCache {
+
+    private final Map<Long, Book> books = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> isbns = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final int maxEntries;
+
+    public BookCache(@Value("${application.books.cache.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<Book> get(Long id) {
+        Book book = books.get(id);
+        return book == null ? Optional.empty() : Optional.of(copy(book));
+    }
+
+    public Optional<Long> getIdByIsbn(String branch, String isbn) {
+        return Optional.ofNullable(isbns.get(isbnKey(branch, isbn)));
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    //dentro de uma transação só aplica depois do commit, para não expor dados de um rollback;
+    //descarta o livro se houve algum evict depois de generation, lida antes de carregá-lo
+    public void put(Book book, long generation) {
+        Book copy = copy(book);
+        afterCommit(() -> store(copy, generation));
+    }
+
+    public void putAll(Collection<Book> books) {
+        books.forEach(book -> store(copy(book)));
+    }
+
+    //troca a entrada pelo livro lido na transação de escrita; cargas em andamento são descartadas
+    public void refresh(Book book) {
+        Book copy = copy(book);
+        afterCommit(() -> {
+            evictNow(copy.getId());
+            store(copy);
+        });
+    }
+
+    public void evict(Long id) {
+        evictNow(id);
+        afterCommit(() -> evictNow(id));
+    }
+
+    public void retainAll(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>(ids);
+        List<Long> stale = new ArrayList<>(books.keySet());
+        stale.removeIf(existing::contains);
+        stale.forEach(this::remove);
+    }
+
+    public List<Book> values() {
+        return new ArrayList<>(books.values());
+    }
+
+    public int size() {
+        return books.size();
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        books.clear();
+        isbns.clear();
+    }
+
+    private void store(Book book, long generation) {
+        Book current = books.get(book.getId());
+        if (this.generation.get() != generation || isOlder(book, current)) {
+            return;
+        }
+        store(book);
+        //um evict entre a conferência e o store
+        if (this.generation.get() != generation) {
+            remove(book.getId());
+        }
+    }
+
+    private static boolean isOlder(Book book, Book current) {
+        return current != null && current.getVersion() != null && book.getVersion() != null
+                && book.getVersion() < current.getVersion();
+    }
+
+    private void evictNow(Long id) {
+        generation.incrementAndGet();
+        remove(id);
+    }
+
+    private void store(Book book) {
+        if (!books.containsKey(book.getId()) && books.size() >= maxEntries) {
+            evictAny(book.getId());
+        }
+        Book previous = books.put(book.getId(), book);
+        if (previous != null && previous.getIsbn() != null) {
+            String previousKey = isbnKey(previous.getBranch(), previous.getIsbn());
+            if (!previousKey.equals(isbnKey(book.getBranch(), book.getIsbn()))) {
+                isbns.remove(previousKey, previous.getId());
+            }
+        }
+        if (book.getIsbn() != null) {
+            isbns.put(isbnKey(book.getBranch(), book.getIsbn()), book.getId());
+        }
+    }
+
+    //cheio: descarta uma entrada qualquer; quem não estiver no cache é lido do banco
+    private void evictAny(Long keep) {
+        Iterator<Long> ids = books.keySet().iterator();
+        while (ids.hasNext()) {
+            Long id = ids.next();
+            if (!id.equals(keep)) {
+                remove(id);
+                return;
+            }
+        }
+    }
+
+    private void remove(Long id) {
+        Book previous = books.remove(id);
+        if (previous != null && previous.getIsbn() != null) {
+            isbns.remove(isbnKey(previous.getBranch(), previous.getIsbn()), id);
+        }
+    }
+
+    private static String isbnKey(String branch, String isbn) {
+        return ShardContext.branchOf(branch) + '/' + isbn;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public static Book copy(Book book) {
+        return Book.builder()
+                .id(book.getId())
+                .isbn(book.getIsbn())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .branch(book.getBranch())
+                .loanDays(book.getLoanDays())
+                .version(book.getVersion())
+                .lastModified(book.getLastModified())
+                .build();
+    }
+}
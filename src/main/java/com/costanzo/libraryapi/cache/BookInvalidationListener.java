@@ -0,0 +1,35 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.invalidation.InvalidationEvent;
+import com.costanzo.libraryapi.invalidation.InvalidationListener;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+//aplica nesta instância as alterações de livros feitas pelas outras
+@Component
+@RequiredArgsConstructor
+public class BookInvalidationListener implements InvalidationListener {
+
+    private final BookCache cache;
+
+    private final BookResponseCache responseCache;
+
+    private final BookSearchCache searchCache;
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        if (event.getType() != InvalidationEvent.Type.BOOK) {
+            return;
+        }
+        if (event.getIds() == null) {
+            cache.clear();
+            responseCache.clear();
+        } else {
+            for (Long id : event.getIds()) {
+                cache.evict(id);
+                responseCache.evict(id);
+            }
+        }
+        searchCache.invalidate();
+    }
+}
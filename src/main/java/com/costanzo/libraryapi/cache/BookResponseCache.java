@@ -0,0 +1,190 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+//respostas já serializadas de GET /api/books/{id} com o ETag, por livro, filial e Accept
+@Component
+public class BookResponseCache {
+
+    //livros examinados para achar um que não seja quente quando o cache está cheio
+    private static final int EVICTION_SAMPLES = 8;
+
+    //variantes (filial, Accept) agrupadas pelo livro: o evict só mexe nas respostas daquele id
+    private final Map<Long, Map<Variant, Response>> responses = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final int maxEntries;
+
+    private final HotKeyTracker hotKeys;
+
+    public BookResponseCache(@Value("${application.books.response-cache.max-entries:10000}") int maxEntries,
+                             HotKeyTracker hotKeys, MeterRegistry registry) {
+        this.maxEntries = maxEntries;
+        this.hotKeys = hotKeys;
+        Gauge.builder("book.response.cache.size", size, AtomicInteger::get).register(registry);
+    }
+
+    public Response get(Long id, String branch, String accept) {
+        Map<Variant, Response> variants = responses.get(id);
+        return variants == null ? null : variants.get(new Variant(branch, accept));
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    //descarta a resposta se algum livro foi alterado depois de generation
+    public Response put(Long id, String branch, String accept, String contentType, byte[] body, long generation) {
+        Response response = new Response(contentType, body);
+        if (maxEntries <= 0 || this.generation.get() != generation) {
+            return response;
+        }
+        while (size.get() >= maxEntries) {
+            if (!evictOne(id)) {
+                break;
+            }
+        }
+        responses.compute(id, (key, variants) -> {
+            Map<Variant, Response> map = variants == null ? new ConcurrentHashMap<>() : variants;
+            if (map.put(new Variant(branch, accept), response) == null) {
+                size.incrementAndGet();
+            }
+            return map;
+        });
+        if (this.generation.get() != generation) {
+            evictNow(id);
+        }
+        return response;
+    }
+
+    //dentro de uma transação remove de novo depois do commit, como o BookCache
+    public void evict(Long id) {
+        evictNow(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        responses.keySet().forEach(this::remove);
+    }
+
+    private void evictNow(Long id) {
+        generation.incrementAndGet();
+        remove(id);
+    }
+
+    //cheio: remove um livro qualquer em vez de manter ordem de acesso no caminho de leitura,
+    //preferindo entre poucos candidatos um que não seja dos mais lidos (pinned)
+    private boolean evictOne(Long keep) {
+        Long victim = null;
+        int sampled = 0;
+        for (Long candidate : responses.keySet()) {
+            if (candidate.equals(keep)) {
+                continue;
+            }
+            if (victim == null) {
+                victim = candidate;
+            }
+            if (!hotKeys.isHot(HotKeyTracker.Stream.BOOK, candidate)) {
+                victim = candidate;
+                break;
+            }
+            if (++sampled >= EVICTION_SAMPLES) {
+                break;
+            }
+        }
+        return victim != null && remove(victim);
+    }
+
+    private boolean remove(Long id) {
+        Map<Variant, Response> removed = responses.remove(id);
+        if (removed == null) {
+            return false;
+        }
+        size.addAndGet(-removed.size());
+        return true;
+    }
+
+    public static final class Response {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private Response(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+
+    private static final class Variant {
+
+        private final String branch;
+
+        private final String accept;
+
+        private Variant(String branch, String accept) {
+            this.branch = branch;
+            this.accept = accept;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Variant)) {
+                return false;
+            }
+            Variant variant = (Variant) o;
+            return Objects.equals(branch, variant.branch) && Objects.equals(accept, variant.accept);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(branch, accept);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+@ConditionalOnProperty(value = "application.books.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class BookResponseCacheConfig {
+
+    //logo depois do limitador de concorrência: hits também contam no limite de leitura
+    @Bean
+    public FilterRegistrationBean<BookResponseCacheFilter> bookResponseCacheFilter(BookResponseCache cache,
+                                                                                 HotKeyTracker hotKeys,
+                                                                                 MeterRegistry registry) {
+        FilterRegistrationBean<BookResponseCacheFilter> registration = new FilterRegistrationBean<>(
+                new BookResponseCacheFilter(cache, hotKeys, registry));
+        registration.addUrlPatterns("/api/books/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,105 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import com.costanzo.libraryapi.sharding.BranchFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//serve GET /api/books/{id} do BookResponseCache; no miss passa pelo controller e guarda o 200
+public class BookResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern BOOK_PATH = Pattern.compile("/api/books/(\\d+)");
+
+    private final BookResponseCache cache;
+
+    private final HotKeyTracker hotKeys;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public BookResponseCacheFilter(BookResponseCache cache, HotKeyTracker hotKeys, MeterRegistry registry) {
+        this.cache = cache;
+        this.hotKeys = hotKeys;
+        this.hits = requests(registry, "hit");
+        this.misses = requests(registry, "miss");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !BOOK_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Matcher path = BOOK_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length()));
+        path.matches();
+        Long id;
+        try {
+            id = Long.valueOf(path.group(1));
+        } catch (NumberFormatException e) {
+            chain.doFilter(request, response);
+            return;
+        }
+        String branch = request.getHeader(BranchFilter.BRANCH_HEADER);
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+
+        //Cache-Control: no-cache renderiza de novo, mas a resposta nova continua indo para o cache
+        String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+        BookResponseCache.Response cached = cacheControl != null && cacheControl.contains("no-cache")
+                ? null : cache.get(id, branch, accept);
+        if (cached != null) {
+            hits.increment();
+            //o controller não é chamado em um hit; a leitura conta aqui para os livros quentes
+            hotKeys.record(HotKeyTracker.Stream.BOOK, id);
+            write(cached, request, response);
+            return;
+        }
+        misses.increment();
+        long generation = cache.generation();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        if (wrapper.getStatus() == HttpStatus.OK.value() && wrapper.getContentType() != null) {
+            BookResponseCache.Response stored = cache.put(id, branch, accept,
+                    wrapper.getContentType(), wrapper.getContentAsByteArray(), generation);
+            wrapper.setHeader(HttpHeaders.ETAG, stored.getEtag());
+            wrapper.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static void write(BookResponseCache.Response cached, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, cached.getEtag());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (cached.getEtag().equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.getContentType());
+        response.setContentLength(cached.getBody().length);
+        response.getOutputStream().write(cached.getBody());
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("book.response.cache.requests")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,228 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//LRU das páginas de busca de livros; qualquer escrita no catálogo muda a versão e invalida tudo de uma vez
+@Component
+public class BookSearchCache {
+
+    private static final ThreadLocal<Boolean> BYPASS = new ThreadLocal<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Map<Key, Entry> entries;
+
+    private final int maxEntries;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter bypasses;
+
+    public BookSearchCache(@Value("${application.books.search-cache.max-entries:1000}") int maxEntries,
+                           MeterRegistry registry) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = requests(registry, "hit");
+        this.misses = requests(registry, "miss");
+        this.bypasses = requests(registry, "bypass");
+        Gauge.builder("book.search.cache.hit.ratio", this, BookSearchCache::hitRatio).register(registry);
+        Gauge.builder("book.search.cache.size", this, BookSearchCache::size).register(registry);
+    }
+
+    //a consulta só é executada em caso de miss; o resultado é guardado com a versão lida antes dela
+    public Page<Book> get(Book filter, Pageable pageable, Supplier<Page<Book>> query) {
+        if (maxEntries <= 0 || Boolean.TRUE.equals(BYPASS.get())) {
+            bypasses.increment();
+            return query.get();
+        }
+        Key key = new Key(filter, pageable);
+        long current = version.get();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.version != current) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            return copy(entry.page);
+        }
+        misses.increment();
+        Page<Book> page = query.get();
+        Entry fresh = new Entry(current, copy(page));
+        synchronized (entries) {
+            //uma escrita durante a consulta invalida o resultado antes mesmo de guardá-lo
+            if (version.get() == current) {
+                entries.put(key, fresh);
+            }
+        }
+        return page;
+    }
+
+    //chamado em toda escrita no catálogo; dentro de uma transação invalida de novo depois do commit
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    //ignora o cache nas buscas da thread atual, ex.: Cache-Control: no-cache
+    public static Scope bypass() {
+        Boolean previous = BYPASS.get();
+        BYPASS.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                BYPASS.remove();
+            } else {
+                BYPASS.set(previous);
+            }
+        };
+    }
+
+    private double hitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("book.search.cache.requests")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Page<Book> copy(Page<Book> page) {
+        List<Book> books = page.getContent().stream().map(BookCache::copy).collect(Collectors.toList());
+        return new PageImpl<>(books, page.getPageable(), page.getTotalElements());
+    }
+
+    private static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static final class Entry {
+
+        private final long version;
+
+        private final Page<Book> page;
+
+        private Entry(long version, Page<Book> page) {
+            this.version = version;
+            this.page = page;
+        }
+    }
+
+    //a busca ignora maiúsculas e usa "contém": filtros que diferem só nisso dão o mesmo resultado
+    private static final class Key {
+
+        private final String branch;
+
+        private final Long id;
+
+        private final String title;
+
+        private final String author;
+
+        private final String isbn;
+
+        private final String bookBranch;
+
+        private final int page;
+
+        private final int size;
+
+        private final String sort;
+
+        private Key(Book filter, Pageable pageable) {
+            this.branch = ShardContext.getBranch();
+            this.id = filter.getId();
+            this.title = normalize(filter.getTitle());
+            this.author = normalize(filter.getAuthor());
+            this.isbn = normalize(filter.getIsbn());
+            this.bookBranch = normalize(filter.getBranch());
+            this.page = pageable.isPaged() ? pageable.getPageNumber() : -1;
+            this.size = pageable.isPaged() ? pageable.getPageSize() : -1;
+            this.sort = pageable.getSort().toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return page == key.page && size == key.size
+                    && Objects.equals(branch, key.branch)
+                    && Objects.equals(id, key.id)
+                    && Objects.equals(title, key.title)
+                    && Objects.equals(author, key.author)
+                    && Objects.equals(isbn, key.isbn)
+                    && Objects.equals(bookBranch, key.bookBranch)
+                    && Objects.equals(sort, key.sort);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(branch, id, title, author, isbn, bookBranch, page, size, sort);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.model.entity.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+//arquivo binário compacto com o catálogo, gravado por um temporário mapeado em memória e movido no lugar;
+//a leitura decodifica todos os registros em objetos Book
+public class CatalogueSnapshot {
+
+    private static final int MAGIC = 0x4C494243; // "LIBC"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES + Integer.BYTES;
+    private static final int NULL_LENGTH = -1;
+
+    private final LocalDateTime watermark;
+
+    private final List<Book> books;
+
+    public CatalogueSnapshot(LocalDateTime watermark, List<Book> books) {
+        this.watermark = watermark;
+        this.books = books;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public static void write(Path file, LocalDateTime watermark, Collection<Book> books) throws IOException {
+        List<byte[][]> encoded = new ArrayList<>(books.size());
+        long size = HEADER_SIZE;
+        for (Book book : books) {
+            byte[][] fields = { encode(book.getIsbn()), encode(book.getTitle()), encode(book.getAuthor()), encode(book.getBranch()) };
+            encoded.add(fields);
+            size += Long.BYTES * 2 + Integer.BYTES;
+            for (byte[] field : fields) {
+                size += Integer.BYTES + (field == null ? 0 : field.length);
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalogue too large for a single mapped snapshot: " + size + " bytes");
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(FORMAT_VERSION);
+            buffer.putLong(watermark.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(watermark.getNano());
+            buffer.putInt(books.size());
+            int i = 0;
+            for (Book book : books) {
+                buffer.putLong(book.getId());
+                buffer.putLong(book.getVersion() == null ? 0L : book.getVersion());
+                buffer.putInt(book.getLoanDays() == null ? NULL_LENGTH : book.getLoanDays());
+                for (byte[] field : encoded.get(i++)) {
+                    if (field == null) {
+                        buffer.putInt(NULL_LENGTH);
+                    } else {
+                        buffer.putInt(field.length);
+                        buffer.put(field);
+                    }
+                }
+            }
+            buffer.force();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static CatalogueSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a catalogue snapshot: " + file);
+            }
+            LocalDateTime watermark = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            int count = buffer.getInt();
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                long version = buffer.getLong();
+                int loanDays = buffer.getInt();
+                books.add(Book.builder()
+                        .id(id)
+                        .version(version)
+                        .loanDays(loanDays == NULL_LENGTH ? null : loanDays)
+                        .isbn(decode(buffer))
+                        .title(decode(buffer))
+                        .author(decode(buffer))
+                        .branch(decode(buffer))
+                        .build());
+            }
+            return new CatalogueSnapshot(watermark, books);
+        }
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        ByteBuffer field = buffer.slice().limit(length);
+        buffer.position(buffer.position() + length);
+        return StandardCharsets.UTF_8.decode(field).toString();
+    }
+}
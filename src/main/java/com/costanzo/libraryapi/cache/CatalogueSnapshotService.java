@@ -0,0 +1,120 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.config.WorkloadContext;
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.model.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//carrega o BookCache do snapshot na subida, reconcilia com as linhas alteradas depois e regrava o snapshot
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(value = "application.catalogue.snapshot.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogueSnapshotService implements ApplicationRunner {
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    @Value("${application.catalogue.snapshot.file}")
+    private String file;
+
+    //margem para relógios diferentes entre aplicação e banco ao reconciliar
+    @Value("${application.catalogue.snapshot.clock-skew:PT1M}")
+    private Duration clockSkew;
+
+    private final BookCache cache;
+    private final BookRepository repository;
+
+    private volatile boolean loaded;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Path path = Paths.get(file);
+        try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+            load(path);
+        }
+        loaded = true;
+        log.info("catalogue cache warm with {} books in {} ms", cache.size(),
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private void load(Path path) {
+        if (Files.exists(path)) {
+            try {
+                loadSnapshot(path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("could not load catalogue snapshot {}, loading from database", path, e);
+                cache.clear();
+                loadFromDatabase();
+            }
+        } else {
+            loadFromDatabase();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.catalogue.snapshot.interval-ms:300000}",
+            initialDelayString = "${application.catalogue.snapshot.interval-ms:300000}")
+    public void writeSnapshot() {
+        if (!loaded) {
+            return;
+        }
+        LocalDateTime watermark = LocalDateTime.now().minus(clockSkew);
+        List<Book> books = cache.values();
+        try {
+            CatalogueSnapshot.write(Paths.get(file), watermark, books);
+            log.info("catalogue snapshot written with {} books", books.size());
+        } catch (IOException e) {
+            log.warn("could not write catalogue snapshot {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeSnapshot();
+    }
+
+    private void loadSnapshot(Path path) throws IOException {
+        CatalogueSnapshot snapshot = CatalogueSnapshot.read(path);
+        cache.putAll(snapshot.getBooks());
+
+        List<Book> changed = repository.findByLastModifiedGreaterThanEqual(snapshot.getWatermark());
+        cache.putAll(changed);
+
+        //linhas removidas depois do snapshot não aparecem como alteradas: confere pelos ids, não pela contagem
+        cache.retainAll(repository.findAllIds());
+        log.info("catalogue snapshot loaded with {} books, {} changed since {}",
+                snapshot.getBooks().size(), changed.size(), snapshot.getWatermark());
+    }
+
+    private void loadFromDatabase() {
+        Long lastId = Long.MIN_VALUE;
+        List<Book> chunk;
+        do {
+            chunk = repository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+            cache.putAll(chunk);
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == LOAD_CHUNK_SIZE);
+    }
+}
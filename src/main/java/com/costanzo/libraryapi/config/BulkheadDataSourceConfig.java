@@ -0,0 +1,55 @@
+package com.costanzo.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+//pools separados para escrita, leitura e jobs; desligar nos perfis "replica" e "sharded"
+@Configuration
+@ConditionalOnProperty(value = "application.datasource.bulkheads.enabled", havingValue = "true")
+public class BulkheadDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("application.datasource.bulkheads.write")
+    public HikariDataSource writeDataSource(DataSourceProperties properties) {
+        return pool(properties, "write");
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.bulkheads.read")
+    public HikariDataSource readDataSource(DataSourceProperties properties) {
+        return pool(properties, "read");
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.bulkheads.batch")
+    public HikariDataSource batchDataSource(DataSourceProperties properties) {
+        return pool(properties, "batch");
+    }
+
+    @Bean
+    public WorkloadRoutingDataSource workloadRoutingDataSource(HikariDataSource writeDataSource,
+                                                               HikariDataSource readDataSource,
+                                                               HikariDataSource batchDataSource) {
+        return new WorkloadRoutingDataSource(writeDataSource, readDataSource, batchDataSource);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(WorkloadRoutingDataSource workloadRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(workloadRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,55 @@
+package com.costanzo.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+//ativado com application.datasource.routing.enabled=true (ver perfil "replica")
+@Configuration
+@ConditionalOnProperty(value = "application.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        return new HikariDataSource();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 HikariDataSource replicaDataSource,
+                                                                 MeterRegistry registry) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReadWriteRoutingDataSource readWriteRoutingDataSource,
+                                               HikariDataSource replicaDataSource,
+                                               @Value("${application.datasource.routing.lag-query:}") String lagQuery,
+                                               @Value("${application.datasource.routing.max-lag:PT10S}") Duration maxLag,
+                                               MeterRegistry registry) {
+        return new ReplicaLagMonitor(readWriteRoutingDataSource, replicaDataSource, lagQuery, maxLag, registry);
+    }
+}
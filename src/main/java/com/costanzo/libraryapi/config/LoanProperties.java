@@ -0,0 +1,47 @@
+package com.costanzo.libraryapi.config;
+
+import com.costanzo.libraryapi.model.entity.Loan;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+//prazo do empréstimo: o do cliente, senão o loanDays do livro, senão days
+@Data
+@ConfigurationProperties("application.loans")
+public class LoanProperties {
+
+    private int days = 4;
+
+    private Map<String, Integer> customerDays = new HashMap<>();
+
+    public int loanDays(Loan loan) {
+        Integer customer = loan.getCustomer() == null ? null : customerDays.get(loan.getCustomer());
+        if (customer != null) {
+            return customer;
+        }
+        if (loan.getBook() != null && loan.getBook().getLoanDays() != null) {
+            return loan.getBook().getLoanDays();
+        }
+        return days;
+    }
+
+    //empréstimo feito hoje vence na mesma hora do dia; datas retroativas contam do início do dia
+    public LocalDateTime dueDate(Loan loan) {
+        LocalDate loanDate = loan.getLoanDate() == null ? LocalDate.now() : loan.getLoanDate();
+        LocalDateTime start = loanDate.equals(LocalDate.now()) ? LocalDateTime.now() : loanDate.atStartOfDay();
+        return start.plusDays(loanDays(loan));
+    }
+
+    //empréstimos gravados antes do vencimento calculado: atrasados pela data do empréstimo
+    public LocalDate legacyLateLoanDate() {
+        return legacyLateLoanDate(LocalDate.now());
+    }
+
+    public LocalDate legacyLateLoanDate(LocalDate date) {
+        return date.minusDays(days);
+    }
+}
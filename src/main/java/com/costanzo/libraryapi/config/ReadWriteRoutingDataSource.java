@@ -0,0 +1,58 @@
+package com.costanzo.libraryapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+//transações read-only vão para a réplica, o resto para o primário; precisa do LazyConnectionDataSourceProxy
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final Counter primaryConnections;
+
+    private final Counter replicaConnections;
+
+    private volatile boolean replicaAvailable = true;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry registry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.primaryConnections = connectionCounter(registry, Target.PRIMARY);
+        this.replicaConnections = connectionCounter(registry, Target.REPLICA);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaAvailable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+
+    //réplica atrasada ou fora do ar: as leituras voltam para o primário
+    public void setReplicaAvailable(boolean replicaAvailable) {
+        this.replicaAvailable = replicaAvailable;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    private static Counter connectionCounter(MeterRegistry registry, Target target) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by the read/write routing datasource")
+                .tag("target", target.name().toLowerCase())
+                .register(registry);
+    }
+}
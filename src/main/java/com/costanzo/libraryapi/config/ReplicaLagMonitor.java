@@ -0,0 +1,57 @@
+package com.costanzo.libraryapi.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+//mede o atraso da réplica com uma query configurável que retorna segundos; sem query, réplica em dia
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    private final JdbcTemplate replica;
+
+    private final String lagQuery;
+
+    private final Duration maxLag;
+
+    private volatile double lagSeconds;
+
+    public ReplicaLagMonitor(ReadWriteRoutingDataSource routingDataSource, DataSource replica,
+                             String lagQuery, Duration maxLag, MeterRegistry registry) {
+        this.routingDataSource = routingDataSource;
+        this.replica = new JdbcTemplate(replica);
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("datasource.replica.available", routingDataSource, ds -> ds.isReplicaAvailable() ? 1 : 0)
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.datasource.routing.lag-check-interval-ms:5000}")
+    public void check() {
+        boolean available;
+        try {
+            Double lag = StringUtils.hasText(lagQuery) ? replica.queryForObject(lagQuery, Double.class) : Double.valueOf(0);
+            lagSeconds = lag == null ? 0 : lag;
+            available = lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (RuntimeException e) {
+            log.warn("could not check replica lag, routing reads to primary", e);
+            lagSeconds = Double.NaN;
+            available = false;
+        }
+        if (available != routingDataSource.isReplicaAvailable()) {
+            log.info("replica {} for reads (lag {} s, tolerance {})", available ? "enabled" : "disabled", lagSeconds, maxLag);
+        }
+        routingDataSource.setReplicaAvailable(available);
+    }
+}
@@ -0,0 +1,36 @@
+package com.costanzo.libraryapi.config;
+
+import com.costanzo.libraryapi.invalidation.InvalidationBus;
+import com.costanzo.libraryapi.invalidation.JdbcInvalidationTransport;
+import com.costanzo.libraryapi.monitoring.StartupMetrics;
+import com.costanzo.libraryapi.scheduling.LoanDueReminders;
+import com.costanzo.libraryapi.service.ArchiveService;
+import com.costanzo.libraryapi.service.FineAccrualService;
+import com.costanzo.libraryapi.service.ScheduleService;
+import com.costanzo.libraryapi.sharding.ShardSchemaInitializer;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    //beans que precisam ser criados na subida mesmo com spring.main.lazy-initialization=true
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ScheduleService.class, ArchiveService.class, FineAccrualService.class,
+                StartupMetrics.class, ReplicaLagMonitor.class, ShardSchemaInitializer.class, InvalidationBus.class,
+                JdbcInvalidationTransport.class, LoanDueReminders.class);
+    }
+
+    //usado no build do arquivo CDS (perfil maven "cds"): sobe a aplicação e encerra assim que estiver pronta
+    @Bean
+    @ConditionalOnProperty("application.startup.training-run")
+    public ApplicationListener<ApplicationReadyEvent> trainingRunExit() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
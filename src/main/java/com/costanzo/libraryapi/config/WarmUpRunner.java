@@ -0,0 +1,141 @@
+package com.costanzo.libraryapi.config;
+
+import com.costanzo.libraryapi.api.dto.BookDTO;
+import com.costanzo.libraryapi.api.dto.LoanDTO;
+import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.api.resource.BookController;
+import com.costanzo.libraryapi.api.resource.LoanController;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+//aquece os caminhos de leitura com dados sintéticos, numa transação sempre desfeita, antes de receber tráfego
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final int DATASET_SIZE = 10;
+
+    @Value("${application.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.warmup.iterations:100}")
+    private int iterations;
+
+    private final BookController bookController;
+    private final LoanController loanController;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final List<DataSource> dataSources;
+    private final ApplicationEventPublisher publisher;
+    private final MeterRegistry registry;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(publisher, this, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.nanoTime();
+        try {
+            openPools();
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            //os ids e termos sintéticos não entram nas chaves quentes
+            try (HotKeyTracker.Scope suspended = HotKeyTracker.suspend()) {
+                transaction.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    exercise();
+                });
+            }
+        } catch (Exception e) {
+            log.warn("warm-up did not complete, accepting traffic anyway", e);
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            registry.timer("application.warmup").record(duration);
+            log.info("warm-up of {} iterations finished in {} ms", iterations, duration.toMillis());
+            AvailabilityChangeEvent.publish(publisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    //abre de uma vez as conexões mínimas de cada pool em vez de esperar o preenchimento em background
+    private void openPools() throws SQLException {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof HikariDataSource) {
+                openPool((HikariDataSource) dataSource);
+            }
+        }
+    }
+
+    private void openPool(HikariDataSource dataSource) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            //a primeira conexão inicia o pool; antes disso minimumIdle ainda pode estar sem valor (-1)
+            do {
+                connections.add(dataSource.getConnection());
+            } while (connections.size() < dataSource.getMinimumIdle());
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private void exercise() {
+        String prefix = "warmup-" + UUID.randomUUID() + "-";
+        List<Long> bookIds = new ArrayList<>(DATASET_SIZE);
+        for (int i = 0; i < DATASET_SIZE; i++) {
+            BookDTO book = bookController.create(
+                    BookDTO.builder().isbn(prefix + i).title("Warm-up " + i).author("Library API").build());
+            bookIds.add(book.getId());
+            if (i % 2 == 0) {
+                loanController.create(LoanDTO.builder().isbn(book.getIsbn()).customer(prefix + i).build());
+            }
+        }
+        entityManager.flush();
+
+        Pageable page = PageRequest.of(0, DATASET_SIZE);
+        BookDTO bookFilter = BookDTO.builder().author("Library API").build();
+        for (int i = 0; i < iterations; i++) {
+            //limpa o contexto de persistência para que cada leitura vá ao banco
+            entityManager.clear();
+            Long id = bookIds.get(i % bookIds.size());
+            serialize(bookController.get(id));
+            serialize(bookController.find(bookFilter, page, "no-cache"));
+            serialize(bookController.loansByBook(id, page));
+            serialize(loanController.find(LoanFilterDTO.builder().customer(prefix + (i % DATASET_SIZE)).build(), page));
+        }
+    }
+
+    private void serialize(Object response) {
+        try {
+            objectMapper.writeValueAsBytes(response);
+        } catch (Exception e) {
+            throw new IllegalStateException("could not serialize warm-up response", e);
+        }
+    }
+}
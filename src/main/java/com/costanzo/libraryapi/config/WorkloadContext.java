@@ -0,0 +1,32 @@
+package com.costanzo.libraryapi.config;
+
+//marca a thread atual como job em lote, para usar o pool de lote
+public final class WorkloadContext {
+
+    private static final ThreadLocal<Boolean> BATCH = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    public static boolean isBatch() {
+        return Boolean.TRUE.equals(BATCH.get());
+    }
+
+    public static Scope batch() {
+        Boolean previous = BATCH.get();
+        BATCH.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                BATCH.remove();
+            } else {
+                BATCH.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
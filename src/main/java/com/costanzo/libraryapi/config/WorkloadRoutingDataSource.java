@@ -0,0 +1,31 @@
+package com.costanzo.libraryapi.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+//pools separados para lote, leitura e escrita: um não esgota as conexões dos outros
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Workload { WRITE, READ, BATCH }
+
+    public WorkloadRoutingDataSource(DataSource write, DataSource read, DataSource batch) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Workload.WRITE, write);
+        targets.put(Workload.READ, read);
+        targets.put(Workload.BATCH, batch);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(write);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (WorkloadContext.isBatch()) {
+            return Workload.BATCH;
+        }
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Workload.READ : Workload.WRITE;
+    }
+}
@@ -0,0 +1,52 @@
+package com.costanzo.libraryapi.events;
+
+//slot do DomainEventRing, reaproveitado: o consumidor copia o que quiser guardar
+public final class DomainEvent {
+
+    public enum Type { BOOK_CREATED, BOOK_UPDATED, BOOK_DELETED, LOAN_CREATED, LOAN_RETURNED }
+
+    private Type type;
+
+    //nulo em LOAN_RETURNED de devoluções por isbn, sem os ids dos empréstimos
+    private Long id;
+
+    //livro do empréstimo nos eventos de empréstimo
+    private Long bookId;
+
+    private String customer;
+
+    private long occurredAt;
+
+    void set(Type type, Long id, Long bookId, String customer, long occurredAt) {
+        this.type = type;
+        this.id = id;
+        this.bookId = bookId;
+        this.customer = customer;
+        this.occurredAt = occurredAt;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getCustomer() {
+        return customer;
+    }
+
+    public long getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + id + ")";
+    }
+}
@@ -0,0 +1,16 @@
+package com.costanzo.libraryapi.events;
+
+//lê todos os eventos do anel em ordem, na sua própria thread; endOfBatch marca onde descarregar o que acumulou
+public interface DomainEventConsumer {
+
+    void onEvent(DomainEvent event, long sequence, boolean endOfBatch);
+
+    //nulo usa application.events.wait-strategy
+    default WaitStrategy waitStrategy() {
+        return null;
+    }
+
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+}
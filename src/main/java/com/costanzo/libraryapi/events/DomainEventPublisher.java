@@ -0,0 +1,86 @@
+package com.costanzo.libraryapi.events;
+
+import com.costanzo.libraryapi.model.entity.Loan;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+
+//publica as mudanças no anel depois do commit; com application.events.enabled=false não faz nada
+@Component
+public class DomainEventPublisher {
+
+    private final DomainEventRing ring;
+
+    public DomainEventPublisher(List<DomainEventConsumer> consumers,
+                                @Value("${application.events.enabled:true}") boolean enabled,
+                                @Value("${application.events.ring-size:1024}") int ringSize,
+                                @Value("${application.events.wait-strategy:SLEEPING}") WaitStrategy waitStrategy,
+                                MeterRegistry registry) {
+        this.ring = enabled ? new DomainEventRing(ringSize, consumers, waitStrategy, registry) : null;
+        if (ring != null) {
+            Gauge.builder("domain.events.backlog", ring, DomainEventRing::getBacklog).register(registry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (ring != null) {
+            ring.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (ring != null) {
+            ring.stop(Duration.ofSeconds(5));
+        }
+    }
+
+    public void bookCreated(Long id) {
+        publish(DomainEvent.Type.BOOK_CREATED, id, id, null);
+    }
+
+    public void bookUpdated(Long id) {
+        publish(DomainEvent.Type.BOOK_UPDATED, id, id, null);
+    }
+
+    public void bookDeleted(Long id) {
+        publish(DomainEvent.Type.BOOK_DELETED, id, id, null);
+    }
+
+    public void loanCreated(Loan loan) {
+        publish(DomainEvent.Type.LOAN_CREATED, loan.getId(),
+                loan.getBook() == null ? null : loan.getBook().getId(), loan.getCustomer());
+    }
+
+    //id nulo: devolução de vários empréstimos sem os ids (por isbn)
+    public void loanReturned(Long id) {
+        publish(DomainEvent.Type.LOAN_RETURNED, id, null, null);
+    }
+
+    //dentro de uma transação só publica depois do commit: os consumidores não veem alterações desfeitas
+    //com o anel cheio o evento é descartado (domain.events.dropped) e a requisição não espera o consumidor
+    private void publish(DomainEvent.Type type, Long id, Long bookId, String customer) {
+        if (ring == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ring.publish(type, id, bookId, customer);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ring.publish(type, id, bookId, customer);
+            }
+        });
+    }
+}
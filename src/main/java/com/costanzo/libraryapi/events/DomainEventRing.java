@@ -0,0 +1,258 @@
+package com.costanzo.libraryapi.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+//anel lock-free de eventos pré-alocados: vários publicadores, cada consumidor com sua thread e sequência
+@Slf4j
+public class DomainEventRing {
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 100;
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final int mask;
+
+    private final DomainEvent[] slots;
+
+    //sequência publicada em cada slot; -1 enquanto nunca usado
+    private final AtomicLongArray published;
+
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private final List<Processor> processors = new ArrayList<>();
+
+    //menor sequência dos consumidores vista pelo último publicador que chegou perto de dar a volta
+    private volatile long gatingCache = -1;
+
+    private volatile boolean running;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition publishedCondition = lock.newCondition();
+
+    private final AtomicInteger blockingWaiters = new AtomicInteger();
+
+    private final DistributionSummary batchSizes;
+
+    private final Counter failures;
+
+    private final Counter dropped;
+
+    public DomainEventRing(int size, List<DomainEventConsumer> consumers, WaitStrategy defaultWaitStrategy,
+                           MeterRegistry registry) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of 2: " + size);
+        }
+        this.mask = size - 1;
+        this.slots = new DomainEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new DomainEvent();
+            published.set(i, -1);
+        }
+        for (DomainEventConsumer consumer : consumers) {
+            WaitStrategy strategy = consumer.waitStrategy() == null ? defaultWaitStrategy : consumer.waitStrategy();
+            processors.add(new Processor(consumer, strategy));
+        }
+        this.batchSizes = DistributionSummary.builder("domain.events.batch.size").register(registry);
+        this.failures = Counter.builder("domain.events.consumer.failures").register(registry);
+        this.dropped = Counter.builder("domain.events.dropped").register(registry);
+    }
+
+    public void start() {
+        running = true;
+        for (Processor processor : processors) {
+            Thread thread = new Thread(processor, "domain-events-" + processor.consumer.getName());
+            thread.setDaemon(true);
+            processor.thread = thread;
+            thread.start();
+        }
+    }
+
+    //os consumidores terminam os eventos já publicados antes de parar
+    public void stop(Duration timeout) throws InterruptedException {
+        running = false;
+        signalBlockingWaiters();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Processor processor : processors) {
+            if (processor.thread != null) {
+                processor.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        }
+    }
+
+    public boolean publish(DomainEvent.Type type, Long id, Long bookId, String customer) {
+        if (!running || processors.isEmpty()) {
+            return false;
+        }
+        long sequence;
+        long current;
+        do {
+            current = cursor.get();
+            sequence = current + 1;
+            long wrapPoint = sequence - slots.length;
+            if (wrapPoint > gatingCache) {
+                long minimum = minimumSequence();
+                gatingCache = minimum;
+                //anel cheio: descarta em vez de prender a thread que publica (a da requisição, depois do commit)
+                if (wrapPoint > minimum) {
+                    dropped.increment();
+                    return false;
+                }
+            }
+        } while (!cursor.compareAndSet(current, sequence));
+        int index = (int) (sequence & mask);
+        slots[index].set(type, id, bookId, customer, System.currentTimeMillis());
+        //escrita volátil: os campos do slot ficam visíveis para quem ler a sequência publicada
+        published.set(index, sequence);
+        if (blockingWaiters.get() > 0) {
+            signalBlockingWaiters();
+        }
+        return true;
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    //eventos publicados que o consumidor mais lento ainda não leu
+    public long getBacklog() {
+        return processors.isEmpty() ? 0 : Math.max(0, cursor.get() - minimumSequence());
+    }
+
+    private long minimumSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Processor processor : processors) {
+            minimum = Math.min(minimum, processor.sequence.get());
+        }
+        return minimum;
+    }
+
+    //maior sequência publicada sem lacunas a partir de from (from - 1 quando from ainda não foi publicada)
+    private long highestPublished(long from) {
+        long highest = cursor.get();
+        for (long sequence = from; sequence <= highest; sequence++) {
+            if (published.get((int) (sequence & mask)) != sequence) {
+                return sequence - 1;
+            }
+        }
+        return highest;
+    }
+
+    private long waitFor(long sequence, WaitStrategy strategy) throws InterruptedException {
+        int attempt = 0;
+        while (true) {
+            long available = highestPublished(sequence);
+            if (available >= sequence || !running) {
+                return available;
+            }
+            switch (strategy) {
+                case BUSY_SPIN:
+                    Thread.onSpinWait();
+                    break;
+                case YIELDING:
+                    if (attempt++ < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                    break;
+                case SLEEPING:
+                    if (attempt < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    }
+                    attempt++;
+                    break;
+                default:
+                    awaitPublished(sequence);
+            }
+        }
+    }
+
+    private void awaitPublished(long sequence) throws InterruptedException {
+        blockingWaiters.incrementAndGet();
+        lock.lock();
+        try {
+            //reavaliado com o lock: um publish entre a verificação e o await sinaliza depois do await
+            if (running && highestPublished(sequence) < sequence) {
+                publishedCondition.await(10, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+            blockingWaiters.decrementAndGet();
+        }
+    }
+
+    private void signalBlockingWaiters() {
+        lock.lock();
+        try {
+            publishedCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Processor implements Runnable {
+
+        private final DomainEventConsumer consumer;
+
+        private final WaitStrategy strategy;
+
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private Thread thread;
+
+        Processor(DomainEventConsumer consumer, WaitStrategy strategy) {
+            this.consumer = consumer;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            try {
+                while (true) {
+                    long available = waitFor(next, strategy);
+                    if (available < next) {
+                        return;
+                    }
+                    for (long current = next; current <= available; current++) {
+                        DomainEvent event = slots[(int) (current & mask)];
+                        //um evento com erro não para o consumidor nem os outros
+                        try {
+                            consumer.onEvent(event, current, current == available);
+                        } catch (RuntimeException e) {
+                            failures.increment();
+                            log.warn("domain event consumer {} failed on {}", consumer.getName(), event, e);
+                        }
+                    }
+                    batchSizes.record(available - next + 1);
+                    sequence.set(available);
+                    next = available + 1;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
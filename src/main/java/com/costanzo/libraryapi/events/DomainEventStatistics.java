@@ -0,0 +1,34 @@
+package com.costanzo.libraryapi.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//contagem de alterações por tipo e atraso entre a publicação e o consumo, fora da thread da requisição
+@Component
+public class DomainEventStatistics implements DomainEventConsumer {
+
+    private final Map<DomainEvent.Type, Counter> counters = new EnumMap<>(DomainEvent.Type.class);
+
+    private final Timer delay;
+
+    public DomainEventStatistics(MeterRegistry registry) {
+        for (DomainEvent.Type type : DomainEvent.Type.values()) {
+            counters.put(type, Counter.builder("domain.events").tag("type", type.name()).register(registry));
+        }
+        this.delay = Timer.builder("domain.events.delay")
+                .description("Delay between publishing a domain event and consuming it")
+                .register(registry);
+    }
+
+    @Override
+    public void onEvent(DomainEvent event, long sequence, boolean endOfBatch) {
+        counters.get(event.getType()).increment();
+        delay.record(Math.max(0, System.currentTimeMillis() - event.getOccurredAt()), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,17 @@
+package com.costanzo.libraryapi.events;
+
+//como um consumidor espera por novos eventos: menor latência custa mais CPU ociosa
+public enum WaitStrategy {
+
+    //gira sem parar: menor latência, um núcleo ocupado por consumidor
+    BUSY_SPIN,
+
+    //gira e depois cede o processador
+    YIELDING,
+
+    //gira, cede e depois dorme em intervalos curtos
+    SLEEPING,
+
+    //dorme até ser acordado pelo publicador; o publicador só sinaliza quando há alguém esperando
+    BLOCKING
+}
@@ -0,0 +1,125 @@
+package com.costanzo.libraryapi.invalidation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+//publica as mudanças de livros e empréstimos para as outras instâncias e aplica as delas aqui
+@Component
+@Slf4j
+public class InvalidationBus {
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final InvalidationTransport transport;
+
+    private final List<InvalidationListener> listeners;
+
+    private final Counter published;
+
+    private final Counter received;
+
+    private final Counter publishFailures;
+
+    private final Timer propagation;
+
+    public InvalidationBus(ObjectProvider<InvalidationTransport> transport, List<InvalidationListener> listeners,
+                           MeterRegistry registry) {
+        this.transport = transport.getIfAvailable();
+        this.listeners = listeners;
+        this.published = Counter.builder("cache.invalidation.published").register(registry);
+        this.received = Counter.builder("cache.invalidation.received").register(registry);
+        this.publishFailures = Counter.builder("cache.invalidation.publish.failures").register(registry);
+        this.propagation = Timer.builder("cache.invalidation.propagation")
+                .description("Delay between publishing an invalidation and applying it on another instance")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (transport != null) {
+            transport.subscribe(this::receive);
+        }
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    //id null: todos os livros
+    public void publishBook(Long id) {
+        publish(InvalidationEvent.Type.BOOK, id == null ? null : Collections.singletonList(id));
+    }
+
+    //id null: todos os empréstimos
+    public void publishLoan(Long id) {
+        publish(InvalidationEvent.Type.LOAN, id == null ? null : Collections.singletonList(id));
+    }
+
+    //operações em lote publicam um único evento com todos os ids
+    public void publishLoans(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            publish(InvalidationEvent.Type.LOAN, new ArrayList<>(ids));
+        }
+    }
+
+    //dentro de uma transação só publica depois do commit: os outros nós não podem reler o dado antigo
+    private void publish(InvalidationEvent.Type type, List<Long> ids) {
+        if (transport == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(type, ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send(type, ids);
+            }
+        });
+    }
+
+    //falha ao publicar não desfaz a escrita já confirmada; os outros nós ficam com o cache antigo
+    private void send(InvalidationEvent.Type type, List<Long> ids) {
+        try {
+            transport.publish(new InvalidationEvent(type, ids, instanceId, Instant.now()));
+            published.increment();
+        } catch (RuntimeException e) {
+            publishFailures.increment();
+            log.warn("could not publish {} {} invalidation", type, ids, e);
+        }
+    }
+
+    void receive(InvalidationEvent event) {
+        if (instanceId.equals(event.getOrigin())) {
+            return;
+        }
+        for (InvalidationListener listener : listeners) {
+            try {
+                listener.onInvalidation(event);
+            } catch (RuntimeException e) {
+                log.warn("invalidation listener failed for {} {}", event.getType(), event.getIds(), e);
+            }
+        }
+        received.increment();
+        if (event.getPublishedAt() != null) {
+            Duration delay = Duration.between(event.getPublishedAt(), Instant.now());
+            propagation.record(delay.isNegative() ? Duration.ZERO : delay);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.costanzo.libraryapi.invalidation;
+
+import com.costanzo.libraryapi.model.repository.CacheInvalidationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+//outro transporte (ex.: um broker) substitui o polling declarando um bean InvalidationTransport
+@Configuration
+@ConditionalOnProperty(value = "application.invalidation.enabled", havingValue = "true", matchIfMissing = true)
+public class InvalidationConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(InvalidationTransport.class)
+    public JdbcInvalidationTransport jdbcInvalidationTransport(CacheInvalidationRepository repository,
+                                                               PlatformTransactionManager transactionManager,
+                                                               @Value("${application.invalidation.batch-size:500}") int batchSize,
+                                                               @Value("${application.invalidation.lookback:100}") int lookback,
+                                                               @Value("${application.invalidation.retention:PT1H}") Duration retention) {
+        return new JdbcInvalidationTransport(repository, transactionManager, batchSize, lookback, retention);
+    }
+}
@@ -0,0 +1,29 @@
+package com.costanzo.libraryapi.invalidation;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+//mudança de uma operação em uma instância; ids nulos invalidam todos do tipo
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class InvalidationEvent {
+
+    public enum Type { BOOK, LOAN }
+
+    private Type type;
+
+    //todos os ids alterados pela operação; null quando todas as entradas do tipo mudaram
+    private List<Long> ids;
+
+    //instância que publicou; ela mesma já invalidou seus caches e ignora o evento
+    private String origin;
+
+    private Instant publishedAt;
+}
@@ -0,0 +1,7 @@
+package com.costanzo.libraryapi.invalidation;
+
+//aplicado em cada instância para eventos publicados pelas outras
+public interface InvalidationListener {
+
+    void onInvalidation(InvalidationEvent event);
+}
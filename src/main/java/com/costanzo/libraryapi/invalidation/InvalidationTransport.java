@@ -0,0 +1,11 @@
+package com.costanzo.libraryapi.invalidation;
+
+import java.util.function.Consumer;
+
+//entrega os eventos a todas as instâncias, inclusive a que publicou; repetir um evento é permitido
+public interface InvalidationTransport {
+
+    void publish(InvalidationEvent event);
+
+    void subscribe(Consumer<InvalidationEvent> subscriber);
+}
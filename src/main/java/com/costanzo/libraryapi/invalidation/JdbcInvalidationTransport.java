@@ -0,0 +1,132 @@
+package com.costanzo.libraryapi.invalidation;
+
+import com.costanzo.libraryapi.model.entity.CacheInvalidation;
+import com.costanzo.libraryapi.model.repository.CacheInvalidationRepository;
+import com.costanzo.libraryapi.sharding.ShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//eventos como linhas de cache_invalidation, lidas por polling; relê os últimos lookback ids por causa de commits fora de ordem
+@Slf4j
+public class JdbcInvalidationTransport implements InvalidationTransport {
+
+    private final CacheInvalidationRepository repository;
+
+    private final TransactionTemplate writeTransaction;
+
+    private final TransactionTemplate readTransaction;
+
+    private final int batchSize;
+
+    private final int lookback;
+
+    private final Duration retention;
+
+    private final List<Consumer<InvalidationEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    private final Set<Long> delivered = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > lookback * 4;
+        }
+    });
+
+    private long lastSeen = -1;
+
+    private long startId;
+
+    public JdbcInvalidationTransport(CacheInvalidationRepository repository, PlatformTransactionManager transactionManager,
+                                     int batchSize, int lookback, Duration retention) {
+        this.repository = repository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        //chamado também de afterCommit de outra transação: precisa de uma transação própria
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.lookback = lookback;
+        this.retention = retention;
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        CacheInvalidation row = CacheInvalidation.builder()
+                .entity(event.getType().name())
+                .entityIds(event.getIds() == null ? null
+                        : event.getIds().stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .origin(event.getOrigin())
+                .publishedAt(event.getPublishedAt())
+                .build();
+        onDefaultBranch(() -> writeTransaction.execute(status -> repository.save(row)));
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Scheduled(fixedDelayString = "${application.invalidation.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        //eventos anteriores à subida não interessam: os caches ainda estão vazios
+        if (lastSeen < 0) {
+            startId = onDefaultBranch(() -> readTransaction.execute(status -> repository.findMaxId()));
+            lastSeen = startId;
+            return;
+        }
+        List<CacheInvalidation> rows;
+        do {
+            long after = Math.max(0, lastSeen - lookback);
+            rows = onDefaultBranch(() -> readTransaction.execute(status ->
+                    repository.findAfter(after, PageRequest.of(0, batchSize + lookback))));
+            List<InvalidationEvent> events = new ArrayList<>(rows.size());
+            for (CacheInvalidation row : rows) {
+                lastSeen = Math.max(lastSeen, row.getId());
+                if (row.getId() > startId && delivered.add(row.getId())) {
+                    events.add(new InvalidationEvent(InvalidationEvent.Type.valueOf(row.getEntity()),
+                            ids(row.getEntityIds()), row.getOrigin(), row.getPublishedAt()));
+                }
+            }
+            for (InvalidationEvent event : events) {
+                subscribers.forEach(subscriber -> subscriber.accept(event));
+            }
+        } while (rows.size() == batchSize + lookback);
+    }
+
+    @Scheduled(fixedDelayString = "${application.invalidation.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        Instant before = Instant.now().minus(retention);
+        int deleted = onDefaultBranch(() -> writeTransaction.execute(status -> repository.deletePublishedBefore(before)));
+        if (deleted > 0) {
+            log.info("deleted {} cache invalidations published before {}", deleted, before);
+        }
+    }
+
+    private static List<Long> ids(String entityIds) {
+        if (entityIds == null) {
+            return null;
+        }
+        return Arrays.stream(entityIds.split(",")).map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    private static <T> T onDefaultBranch(Supplier<T> action) {
+        return ShardContext.callOnBranch(ShardContext.DEFAULT_BRANCH, action);
+    }
+}
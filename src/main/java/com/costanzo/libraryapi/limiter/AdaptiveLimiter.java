@@ -0,0 +1,93 @@
+package com.costanzo.libraryapi.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//limite de concorrência AIMD pela latência; acima do limite rejeita na hora, sem fila
+public class AdaptiveLimiter {
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private double limit;
+
+    //instante da última redução: requisições iniciadas antes dela não reduzem de novo
+    private long lastBackoffNanos;
+
+    private boolean backedOff;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                           Duration latencyThreshold, double backoffRatio) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max for limiter " + name);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+    }
+
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos) {
+        release(latencyNanos, System.nanoTime());
+    }
+
+    //no máximo uma redução por latência: um pico que deixa várias requisições lentas reduz uma vez só
+    void release(long latencyNanos, long nowNanos) {
+        int inflightAtRelease = inflight.getAndDecrement();
+        synchronized (this) {
+            if (latencyNanos > latencyThresholdNanos) {
+                if (!backedOff || nowNanos - latencyNanos - lastBackoffNanos > 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastBackoffNanos = nowNanos;
+                    backedOff = true;
+                }
+            } else if (inflightAtRelease * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
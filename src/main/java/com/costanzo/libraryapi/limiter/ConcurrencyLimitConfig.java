@@ -0,0 +1,61 @@
+package com.costanzo.libraryapi.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.Arrays;
+
+@Configuration
+@ConditionalOnProperty(value = "application.limiter.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(LimiterProperties.class)
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public AdaptiveLimiter readLimiter(LimiterProperties properties, MeterRegistry registry) {
+        return limiter("read", properties.getRead(), properties, registry);
+    }
+
+    @Bean
+    public AdaptiveLimiter writeLimiter(LimiterProperties properties, MeterRegistry registry) {
+        return limiter("write", properties.getWrite(), properties, registry);
+    }
+
+    //só /api/**: actuator e swagger continuam acessíveis com a API saturada
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(AdaptiveLimiter readLimiter,
+                                                                                 AdaptiveLimiter writeLimiter,
+                                                                                 LimiterProperties properties,
+                                                                                 ObjectMapper objectMapper,
+                                                                                 MeterRegistry registry) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(readLimiter, writeLimiter, properties.getRetryAfter(), objectMapper, registry));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public ConcurrencyLimitEndpoint concurrencyLimitEndpoint(AdaptiveLimiter readLimiter, AdaptiveLimiter writeLimiter) {
+        return new ConcurrencyLimitEndpoint(Arrays.asList(readLimiter, writeLimiter));
+    }
+
+    private static AdaptiveLimiter limiter(String name, LimiterProperties.Settings settings,
+                                           LimiterProperties properties, MeterRegistry registry) {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(name, settings.getInitialLimit(), settings.getMinLimit(),
+                settings.getMaxLimit(), settings.getLatencyThreshold(), properties.getBackoffRatio());
+        Gauge.builder("api.concurrency.limit", limiter, AdaptiveLimiter::getLimit)
+                .tag("limiter", name)
+                .register(registry);
+        Gauge.builder("api.concurrency.inflight", limiter, AdaptiveLimiter::getInflight)
+                .tag("limiter", name)
+                .register(registry);
+        return limiter;
+    }
+}
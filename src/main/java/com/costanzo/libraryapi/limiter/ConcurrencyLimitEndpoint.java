@@ -0,0 +1,32 @@
+package com.costanzo.libraryapi.limiter;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//GET /actuator/concurrencylimits: limite, requisições em andamento e rejeições de cada limitador
+@Endpoint(id = "concurrencylimits")
+public class ConcurrencyLimitEndpoint {
+
+    private final List<AdaptiveLimiter> limiters;
+
+    public ConcurrencyLimitEndpoint(List<AdaptiveLimiter> limiters) {
+        this.limiters = limiters;
+    }
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        Map<String, Object> limits = new LinkedHashMap<>();
+        for (AdaptiveLimiter limiter : limiters) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("limit", limiter.getLimit());
+            status.put("inflight", limiter.getInflight());
+            status.put("rejected", limiter.getRejected());
+            limits.put(limiter.getName(), status);
+        }
+        return limits;
+    }
+}
@@ -0,0 +1,78 @@
+package com.costanzo.libraryapi.limiter;
+
+import com.costanzo.libraryapi.exception.ApiErros;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+//rejeita com 503 o que passar do limite de leitura (GET) ou de escrita (demais métodos)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveLimiter read;
+
+    private final AdaptiveLimiter write;
+
+    private final Duration retryAfter;
+
+    private final ObjectMapper objectMapper;
+
+    private final Counter readRejections;
+
+    private final Counter writeRejections;
+
+    public ConcurrencyLimitFilter(AdaptiveLimiter read, AdaptiveLimiter write, Duration retryAfter,
+                                  ObjectMapper objectMapper, MeterRegistry registry) {
+        this.read = read;
+        this.write = write;
+        this.retryAfter = retryAfter;
+        this.objectMapper = objectMapper;
+        this.readRejections = rejections(registry, read);
+        this.writeRejections = rejections(registry, write);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean isRead = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        AdaptiveLimiter limiter = isRead ? read : write;
+        if (!limiter.tryAcquire()) {
+            (isRead ? readRejections : writeRejections).increment();
+            reject(response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.getSeconds())));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ApiErros(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent requests")));
+    }
+
+    private static Counter rejections(MeterRegistry registry, AdaptiveLimiter limiter) {
+        return Counter.builder("api.concurrency.rejected")
+                .description("Requests rejected by the adaptive concurrency limit")
+                .tag("limiter", limiter.getName())
+                .register(registry);
+    }
+}
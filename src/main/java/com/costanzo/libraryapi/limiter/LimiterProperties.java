@@ -0,0 +1,45 @@
+package com.costanzo.libraryapi.limiter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("application.limiter")
+public class LimiterProperties {
+
+    private boolean enabled = true;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private double backoffRatio = 0.9;
+
+    //GET em /api/**
+    private Settings read = new Settings(50, 10, 400, Duration.ofMillis(250));
+
+    //demais métodos em /api/**
+    private Settings write = new Settings(20, 4, 100, Duration.ofMillis(500));
+
+    @Data
+    public static class Settings {
+
+        private int initialLimit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        private Duration latencyThreshold;
+
+        public Settings() {
+        }
+
+        Settings(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyThreshold = latencyThreshold;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -13,7 +14,10 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_book_isbn", columnList = "isbn"),
+        @Index(name = "idx_book_last_modified", columnList = "last_modified")
+})
 public class Book {
     @Id
     @Column
@@ -23,6 +27,27 @@ public class Book {
     private String author;
     private String isbn;
 
+    //filial dona do livro; define o shard onde a linha é gravada
+    @Column(length = 32)
+    private String branch;
+
+    //prazo de empréstimo próprio do livro, em dias; nulo usa o padrão (LoanProperties)
+    @Column(name = "loan_days")
+    private Integer loanDays;
+
+    @Version
+    private Long version;
+
+    //usado para reconciliar o snapshot do catálogo com as linhas alteradas depois dele
+    @Column(name = "last_modified")
+    private LocalDateTime lastModified;
+
     @OneToMany(mappedBy = "book")
     private List<Loan> loans;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        this.lastModified = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,37 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+//linha do canal de invalidação entre instâncias; lida por polling em cada nó
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_cache_invalidation_published", columnList = "publishedAt"))
+public class CacheInvalidation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 16, nullable = false)
+    private String entity;
+
+    //ids separados por vírgula, uma linha por operação; null invalida todas as entradas
+    @Lob
+    @Column(name = "entity_ids")
+    private String entityIds;
+
+    @Column(length = 36, nullable = false)
+    private String origin;
+
+    @Column(nullable = false)
+    private Instant publishedAt;
+}
@@ -0,0 +1,35 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_fine_loan_date", columnNames = {"loan_id", "accrual_date"}))
+public class Fine {
+
+    //sequence em vez de identity para permitir inserts em lote (hibernate.jdbc.batch_size)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fine_seq")
+    @SequenceGenerator(name = "fine_seq", sequenceName = "fine_seq", allocationSize = 50)
+    private Long id;
+
+    //sem chave estrangeira: o empréstimo devolvido pode ir para o arquivo e a multa continua
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    @Column(precision = 10, scale = 2, nullable = false)
+    private BigDecimal amount;
+}
@@ -0,0 +1,50 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+//progresso de uma partição de um job em lotes: a próxima execução continua depois de lastId
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_job_checkpoint",
+        columnNames = {"job", "run_key", "partition_index"}))
+public class JobCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 64, nullable = false)
+    private String job;
+
+    //identifica a execução lógica (ex.: a data das multas), não a tentativa
+    @Column(name = "run_key", length = 32, nullable = false)
+    private String runKey;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    //faixa de ids (rangeStart, rangeEnd]
+    @Column(nullable = false)
+    private Long rangeStart;
+
+    @Column(nullable = false)
+    private Long rangeEnd;
+
+    @Column(nullable = false)
+    private Long lastId;
+
+    @Column(nullable = false)
+    private Integer items;
+
+    @Column
+    private Instant finishedAt;
+}
@@ -0,0 +1,53 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_job_run_job_started", columnList = "job, startedAt"))
+public class JobRun {
+
+    public enum Status { RUNNING, SUCCEEDED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 64, nullable = false)
+    private String job;
+
+    //nulos quando o job não é particionado
+    @Column
+    private Integer partitionIndex;
+
+    @Column
+    private Integer partitions;
+
+    @Column(length = 64, nullable = false)
+    private String instance;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    @Column
+    private Instant finishedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Status status;
+
+    @Column
+    private Integer items;
+
+    @Column(length = 1000)
+    private String error;
+}
@@ -7,17 +7,27 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_loan_book_returned", columnList = "book_id, returned"),
+        @Index(name = "idx_loan_customer_date", columnList = "customer, loanDate"),
+        @Index(name = "idx_loan_email_date", columnList = "customer_email, loanDate"),
+        @Index(name = "idx_loan_returned_date", columnList = "returned, loanDate"),
+        @Index(name = "idx_loan_returned_due", columnList = "returned, due_date")
+})
 public class Loan {
 
+    //sequence em vez de identity para permitir inserts em lote (hibernate.jdbc.batch_size)
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
     @Column(length = 100)
     private String customer;
@@ -33,4 +43,15 @@ public class Loan {
     @Column
     private Boolean returned;
 
+    //calculada no empréstimo (LoanProperties); a partir dela o empréstimo está atrasado
+    @Column(name = "due_date")
+    private LocalDateTime dueDate;
+
+    //primeiro aviso de atraso, enviado pelo LoanDueReminders
+    @Column(name = "overdue_notified_at")
+    private LocalDateTime overdueNotifiedAt;
+
+    @Column(length = 32)
+    private String branch;
+
 }
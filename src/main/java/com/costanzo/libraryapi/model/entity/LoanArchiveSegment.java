@@ -0,0 +1,41 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Set;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "loan_archive_segment")
+public class LoanArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rows;
+
+    //índice dos livros do segmento: a busca por livro só descompacta os segmentos que o contêm
+    @ElementCollection
+    @CollectionTable(name = "loan_archive_book", joinColumns = @JoinColumn(name = "segment_id"),
+            indexes = @Index(name = "idx_loan_archive_book", columnList = "book_id"))
+    @Column(name = "book_id", nullable = false)
+    private Set<Long> bookIds;
+
+    //empréstimos compactados (gzip) coluna a coluna, ver LoanArchive
+    @Lob
+    @Column(nullable = false)
+    private byte[] data;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,31 @@
+package com.costanzo.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+//lock de um job agendado: quem tiver lockedUntil no futuro é o dono da execução
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class SchedulerLock {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(length = 64, nullable = false)
+    private String lockedBy;
+
+    @Column(nullable = false)
+    private Instant lockedAt;
+
+    @Column(nullable = false)
+    private Instant lockedUntil;
+}
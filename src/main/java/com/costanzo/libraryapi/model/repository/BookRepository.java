@@ -1,15 +1,46 @@
 package com.costanzo.libraryapi.model.repository;
 
 import com.costanzo.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
 
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
 
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    List<Book> findByLastModifiedGreaterThanEqual(LocalDateTime lastModified);
+
+    //paginação por chave: evita o custo de offset ao percorrer o catálogo inteiro
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select b.id from Book b")
+    List<Long> findAllIds();
+
+    @Transactional
+    @Modifying
+    @Query("update Book b set b.title = :title, b.author = :author, b.version = b.version + 1, " +
+            " b.lastModified = :lastModified where b.id = :id")
+    int updateTitleAndAuthor(@Param("id") Long id,
+                             @Param("title") String title,
+                             @Param("author") String author,
+                             @Param("lastModified") LocalDateTime lastModified);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Book b where b.id = :id")
+    int deleteBookById(@Param("id") Long id);
 
 }
@@ -0,0 +1,22 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookRepositoryCustom {
+
+    //campos de BookDTO
+    Map<String, Map<String, String>> FIELDS = FieldProjection.fields(
+            "id", "id", "id",
+            "title", "title", "title",
+            "author", "author", "author",
+            "isbn", "isbn", "isbn");
+
+    //seleciona apenas as colunas dos campos pedidos (todos quando vazio)
+    Page<Map<String, Object>> findFields(Example<Book> example, Collection<String> fields, Pageable pageable);
+}
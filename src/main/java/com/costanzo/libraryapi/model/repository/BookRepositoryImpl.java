@@ -0,0 +1,27 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Map;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFields(Example<Book> example, Collection<String> fields, Pageable pageable) {
+        return FieldProjection.find(entityManager, Book.class,
+                (root, query, cb) -> QueryByExamplePredicateBuilder.getPredicate(root, cb, example),
+                FIELDS, fields, pageable);
+    }
+}
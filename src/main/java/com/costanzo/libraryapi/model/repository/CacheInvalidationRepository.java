@@ -0,0 +1,24 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.CacheInvalidation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+    @Query("select c from CacheInvalidation c where c.id > :after order by c.id")
+    List<CacheInvalidation> findAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select coalesce(max(c.id), 0) from CacheInvalidation c")
+    Long findMaxId();
+
+    @Modifying
+    @Query("delete from CacheInvalidation c where c.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") Instant before);
+}
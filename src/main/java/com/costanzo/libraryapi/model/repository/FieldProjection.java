@@ -0,0 +1,136 @@
+package com.costanzo.libraryapi.model.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//consulta paginada só com as colunas dos campos pedidos; chave com ponto vira objeto aninhado, caminho com ponto vira left join
+public final class FieldProjection {
+
+    private FieldProjection() {
+    }
+
+    //campo -> (chave de saída -> caminho na entidade), na ordem em que os campos são serializados
+    public static Map<String, Map<String, String>> fields(String... fieldKeyPath) {
+        Map<String, Map<String, String>> fields = new LinkedHashMap<>();
+        for (int i = 0; i < fieldKeyPath.length; i += 3) {
+            fields.computeIfAbsent(fieldKeyPath[i], field -> new LinkedHashMap<>())
+                    .put(fieldKeyPath[i + 1], fieldKeyPath[i + 2]);
+        }
+        return fields;
+    }
+
+    public static <T> Page<Map<String, Object>> find(EntityManager entityManager, Class<T> type, Specification<T> spec,
+                                                     Map<String, Map<String, String>> definitions,
+                                                     Collection<String> fields, Pageable pageable) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        definitions.forEach((field, fieldColumns) -> {
+            if (fields.isEmpty() || fields.contains(field)) {
+                columns.putAll(fieldColumns);
+            }
+        });
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(type);
+        Map<String, From<?, ?>> joins = new HashMap<>();
+        List<Selection<?>> selections = new ArrayList<>(columns.size());
+        List<String> keys = new ArrayList<>(columns.keySet());
+        for (String key : keys) {
+            selections.add(path(root, joins, columns.get(key)));
+        }
+        //valores da ordenação, selecionados mesmo quando o campo não foi pedido, para o merge entre shards
+        List<String> paths = new ArrayList<>(columns.values());
+        Map<String, Integer> sortIndexes = new LinkedHashMap<>();
+        for (Sort.Order order : pageable.getSort()) {
+            int index = paths.indexOf(order.getProperty());
+            if (index < 0) {
+                selections.add(path(root, joins, order.getProperty()));
+                index = selections.size() - 1;
+            }
+            sortIndexes.put(order.getProperty(), index);
+        }
+        query.multiselect(selections);
+        query.where(spec.toPredicate(root, query, cb));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : typedQuery.getResultList()) {
+            Row row = new Row();
+            for (int i = 0; i < keys.size(); i++) {
+                put(row, keys.get(i), tuple.get(i));
+            }
+            sortIndexes.forEach((property, index) -> row.sortValues.put(property, tuple.get(index)));
+            rows.add(row);
+        }
+        //a contagem só é feita quando o total não sai da própria página
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(entityManager, type, spec));
+    }
+
+    private static <T> long count(EntityManager entityManager, Class<T> type, Specification<T> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(type);
+        query.select(cb.count(root));
+        query.where(spec.toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static Path<?> path(Root<?> root, Map<String, From<?, ?>> joins, String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0) {
+            return root.get(path);
+        }
+        String association = path.substring(0, dot);
+        From<?, ?> join = joins.computeIfAbsent(association, name -> root.join(name, JoinType.LEFT));
+        return join.get(path.substring(dot + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> row, String key, Object value) {
+        int dot = key.indexOf('.');
+        if (dot < 0) {
+            row.put(key, value);
+            return;
+        }
+        Map<String, Object> nested = (Map<String, Object>) row.computeIfAbsent(key.substring(0, dot), k -> new LinkedHashMap<>());
+        put(nested, key.substring(dot + 1), value);
+    }
+
+    //só as entradas do Map são serializadas; os valores da ordenação ficam de fora
+    public static final class Row extends LinkedHashMap<String, Object> {
+
+        private final Map<String, Object> sortValues = new HashMap<>();
+
+        public Object getSortValue(String property) {
+            return sortValues.get(property);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.Fine;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+
+public interface FineRepository extends JpaRepository<Fine, Long> {
+
+    long countByAccrualDate(LocalDate accrualDate);
+}
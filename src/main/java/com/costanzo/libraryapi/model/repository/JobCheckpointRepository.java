@@ -0,0 +1,24 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, Long> {
+
+    List<JobCheckpoint> findByJobAndRunKeyOrderByPartitionIndex(String job, String runKey);
+
+    //chamado na mesma transação que grava o lote
+    @Modifying
+    @Query("update JobCheckpoint c set c.lastId = :lastId, c.items = c.items + :items where c.id = :id")
+    int advance(@Param("id") Long id, @Param("lastId") Long lastId, @Param("items") int items);
+
+    @Modifying
+    @Query("update JobCheckpoint c set c.finishedAt = :finishedAt where c.id = :id")
+    int finish(@Param("id") Long id, @Param("finishedAt") Instant finishedAt);
+}
@@ -0,0 +1,11 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.JobRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+
+    List<JobRun> findByJobOrderByStartedAtDesc(String job);
+}
@@ -0,0 +1,14 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.LoanArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface LoanArchiveSegmentRepository extends JpaRepository<LoanArchiveSegment, Long> {
+
+    @Query("select s.id from LoanArchiveSegment s join s.bookIds b where b = :bookId order by s.id")
+    List<Long> findIdsByBookId(@Param("bookId") Long bookId);
+}
@@ -6,25 +6,99 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, JpaSpecificationExecutor<Loan>, LoanRepositoryCustom {
     //serve para transformar  metodo em query do JPA
     @Query(value = "select case when ( count(l.id) > 0 ) then true else false end " +
             " from Loan l where l.book = :book and ( l.returned is null or l.returned is false) ")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query(value = "select 1 from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
-    Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn,
-                                        @Param("customer") String customer,
-                                        Pageable pageRequest);
+    @Query("select distinct l.book.id from Loan l where l.book.id in :bookIds and ( l.returned is null or l.returned is false) ")
+    List<Long> findNotReturnedBookIds(@Param("bookIds") Collection<Long> bookIds);
 
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query("select 1 from Loan l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false) " )
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    //vencidos pelo due_date; empréstimos gravados sem ele usam a data do empréstimo
+    @Query("select l from Loan l where ( l.dueDate <= :now or ( l.dueDate is null and l.loanDate <= :legacyLoanDate ) ) " +
+            " and ( l.returned is null or l.returned is false) ")
+    List<Loan> findLateLoans(@Param("now") LocalDateTime now, @Param("legacyLoanDate") LocalDate legacyLoanDate);
+
+    //faixa de ids dos empréstimos vencidos até :now, devolvidos ou não: devoluções não mudam a faixa entre instâncias
+    @Query("select min(l.id), max(l.id) from Loan l " +
+            " where ( l.dueDate <= :now or ( l.dueDate is null and l.loanDate <= :legacyLoanDate ) ) ")
+    List<Object[]> findLateIdRange(@Param("now") LocalDateTime now, @Param("legacyLoanDate") LocalDate legacyLoanDate);
+
+    //partição por faixa contínua de ids: cada instância processa as partições cujo lock conseguir
+    @Query("select l from Loan l where l.id >= :fromId and l.id <= :toId " +
+            " and ( l.dueDate <= :now or ( l.dueDate is null and l.loanDate <= :legacyLoanDate ) ) " +
+            " and ( l.returned is null or l.returned is false) ")
+    List<Loan> findLateLoansInRange(@Param("now") LocalDateTime now, @Param("legacyLoanDate") LocalDate legacyLoanDate,
+                                    @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    //faixa de ids dos empréstimos abertos vencidos antes de :cutoff (min e max nulos quando não há)
+    @Query("select min(l.id), max(l.id) from Loan l " +
+            " where ( l.dueDate < :cutoff or ( l.dueDate is null and l.loanDate <= :legacyLoanDate ) ) " +
+            " and ( l.returned is null or l.returned is false) ")
+    List<Object[]> findOverdueIdRange(@Param("cutoff") LocalDateTime cutoff, @Param("legacyLoanDate") LocalDate legacyLoanDate);
+
+    @Query("select l.id from Loan l where l.id > :after and l.id <= :upTo " +
+            " and ( l.dueDate < :cutoff or ( l.dueDate is null and l.loanDate <= :legacyLoanDate ) ) " +
+            " and ( l.returned is null or l.returned is false) order by l.id")
+    List<Long> findOverdueIds(@Param("cutoff") LocalDateTime cutoff, @Param("legacyLoanDate") LocalDate legacyLoanDate,
+                              @Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    //id e vencimento dos empréstimos abertos que vencem até :until e ainda não tiveram o aviso de atraso
+    @Query("select l.id, l.dueDate from Loan l where l.dueDate <= :until and l.overdueNotifiedAt is null " +
+            " and ( l.returned is null or l.returned is false) ")
+    List<Object[]> findDueWithoutNotice(@Param("until") LocalDateTime until);
+
+    //só uma instância consegue marcar o aviso; as demais recebem 0
+    @Transactional
+    @Modifying
+    @Query("update Loan l set l.overdueNotifiedAt = :now where l.id = :id and l.overdueNotifiedAt is null " +
+            " and l.dueDate <= :now and ( l.returned is null or l.returned = false) ")
+    int markOverdueNotified(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("select l.customerEmail from Loan l where l.id in :ids and l.customerEmail is not null")
+    List<String> findCustomerEmails(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update Loan l set l.returned = :returned where l.id = :id " +
+            " and ( l.returned is null or l.returned <> :returned) ")
+    int updateReturned(@Param("id") Long id, @Param("returned") Boolean returned);
+
+    //trava as linhas até o fim da transação: só quem as devolver publica os eventos delas
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l.id from Loan l where l.id in :ids and ( l.returned is null or l.returned = false) ")
+    List<Long> findOpenIdsForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update Loan l set l.returned = true where l.id in :ids and ( l.returned is null or l.returned = false) ")
+    int returnByIds(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l.id from Loan l where l.book.isbn in :isbns and ( l.returned is null or l.returned = false) ")
+    List<Long> findOpenIdsByIsbnsForUpdate(@Param("isbns") Collection<String> isbns);
+
+    @Query("select l from Loan l where l.returned = true and l.loanDate < :before order by l.id")
+    List<Loan> findReturnedBefore(@Param("before") LocalDate before, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from Loan l where l.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,26 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface LoanRepositoryCustom {
+
+    //campos de LoanDTO; "book" traz o livro aninhado
+    Map<String, Map<String, String>> FIELDS = FieldProjection.fields(
+            "id", "id", "id",
+            "isbn", "isbn", "book.isbn",
+            "customer", "customer", "customer",
+            "email", "email", "customerEmail",
+            "book", "book.id", "book.id",
+            "book", "book.title", "book.title",
+            "book", "book.author", "book.author",
+            "book", "book.isbn", "book.isbn");
+
+    //seleciona apenas as colunas dos campos pedidos (todos quando vazio)
+    Page<Map<String, Object>> findFields(Specification<Loan> spec, Collection<String> fields, Pageable pageable);
+}
@@ -0,0 +1,46 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.model.entity.Loan;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+
+//monta a consulta apenas com os filtros informados, sem OR entre tabelas, para que os índices sejam usados
+public final class LoanSpecification {
+
+    private LoanSpecification() {
+    }
+
+    public static Specification<Loan> of(LoanFilterDTO filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getIsbn() != null) {
+                Join<Loan, Book> book = root.join("book");
+                predicates.add(cb.equal(book.get("isbn"), filter.getIsbn()));
+            }
+            if (filter.getCustomer() != null) {
+                predicates.add(cb.equal(root.get("customer"), filter.getCustomer()));
+            }
+            if (filter.getEmail() != null) {
+                predicates.add(cb.equal(root.get("customerEmail"), filter.getEmail()));
+            }
+            if (filter.getLoanDateFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("loanDate"), filter.getLoanDateFrom()));
+            }
+            if (filter.getLoanDateTo() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("loanDate"), filter.getLoanDateTo()));
+            }
+            if (filter.getReturned() != null) {
+                predicates.add(filter.getReturned()
+                        ? cb.isTrue(root.get("returned"))
+                        : cb.or(cb.isNull(root.get("returned")), cb.isFalse(root.get("returned"))));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+}
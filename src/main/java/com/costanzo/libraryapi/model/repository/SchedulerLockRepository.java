@@ -0,0 +1,30 @@
+package com.costanzo.libraryapi.model.repository;
+
+import com.costanzo.libraryapi.model.entity.SchedulerLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface SchedulerLockRepository extends JpaRepository<SchedulerLock, String> {
+
+    //só toma o lock se ele estiver expirado; o update é atômico no banco
+    @Modifying
+    @Query("update SchedulerLock s set s.lockedBy = :instance, s.lockedAt = :now, s.lockedUntil = :until " +
+            "where s.name = :name and s.lockedUntil <= :now")
+    int acquire(@Param("name") String name, @Param("instance") String instance,
+                @Param("now") Instant now, @Param("until") Instant until);
+
+    //insert explícito: save() com id atribuído faria merge e sobrescreveria o lock de outra instância
+    @Modifying
+    @Query(value = "insert into scheduler_lock (name, locked_by, locked_at, locked_until) values (:name, :instance, :now, :until)",
+            nativeQuery = true)
+    int insert(@Param("name") String name, @Param("instance") String instance,
+               @Param("now") Instant now, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update SchedulerLock s set s.lockedUntil = :until where s.name = :name and s.lockedBy = :instance")
+    int release(@Param("name") String name, @Param("instance") String instance, @Param("until") Instant until);
+}
@@ -0,0 +1,36 @@
+package com.costanzo.libraryapi.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.costanzo.libraryapi.BookSearch")
+@Label("Book Search")
+@Description("Paged search of books by example")
+@Category({"Library API", "Books"})
+@StackTrace(false)
+public class BookSearchEvent extends jdk.jfr.Event {
+
+    @Label("Title Filter")
+    public String title;
+
+    @Label("Author Filter")
+    public String author;
+
+    @Label("Isbn Filter")
+    public String isbn;
+
+    @Label("Page Number")
+    public int pageNumber;
+
+    @Label("Page Size")
+    public int pageSize;
+
+    @Label("Rows Returned")
+    public int rows;
+
+    @Label("Total Elements")
+    public long totalElements;
+}
@@ -0,0 +1,116 @@
+package com.costanzo.libraryapi.monitoring;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//inicia (POST), para (DELETE) e baixa (GET) uma gravação do Flight Recorder
+@Component
+@Endpoint(id = "flightrecorder")
+@Slf4j
+public class FlightRecorderEndpoint {
+
+    private static final String DEFAULT_SETTINGS = "profile";
+
+    private Recording recording;
+
+    private Path dump;
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String settings, @Nullable Long maxAgeSeconds)
+            throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        closeRecording();
+
+        Configuration configuration = Configuration.getConfiguration(settings != null ? settings : DEFAULT_SETTINGS);
+        recording = new Recording(configuration);
+        recording.setName("library-api");
+        recording.setToDisk(true);
+        if (maxAgeSeconds != null) {
+            recording.setMaxAge(Duration.ofSeconds(maxAgeSeconds));
+        }
+        recording.start();
+        log.info("flight recording started with settings: {}", configuration.getName());
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() throws IOException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            writeDump();
+            log.info("flight recording stopped, dump written to: {}", dump);
+        }
+        return status();
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> download() throws IOException {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        //enquanto estiver gravando devolve um snapshot do que já foi coletado
+        if (recording.getState() == RecordingState.RUNNING || dump == null) {
+            writeDump();
+        }
+        return new WebEndpointResponse<>(new FileSystemResource(dump));
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws IOException {
+        closeRecording();
+    }
+
+    private void writeDump() throws IOException {
+        deleteDump();
+        dump = Files.createTempFile("library-api-", ".jfr");
+        recording.dump(dump);
+    }
+
+    private void closeRecording() throws IOException {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        deleteDump();
+    }
+
+    private void deleteDump() throws IOException {
+        if (dump != null) {
+            Files.deleteIfExists(dump);
+            dump = null;
+        }
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", recording != null ? recording.getState().name() : RecordingState.NEW.name());
+        if (recording != null) {
+            status.put("id", recording.getId());
+            status.put("startTime", recording.getStartTime());
+            status.put("size", recording.getSize());
+        }
+        return status;
+    }
+}
@@ -0,0 +1,158 @@
+package com.costanzo.libraryapi.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//chaves mais frequentes de um fluxo: count-min sketch para estimar e min-heap com as k maiores
+public class HeavyHitters {
+
+    private static final int REFRESH = 16;
+
+    private final int depth;
+
+    private final int width;
+
+    private final int k;
+
+    private final AtomicLongArray counters;
+
+    private final LongAdder total = new LongAdder();
+
+    //guardados por this
+    private final PriorityQueue<HotKey> heap = new PriorityQueue<>(Comparator.comparingLong(HotKey::getEstimate));
+
+    private final Map<String, HotKey> heapKeys = new HashMap<>();
+
+    //lidos sem lock no caminho de gravação
+    private volatile long minTop;
+
+    private volatile Set<String> top = Collections.emptySet();
+
+    public HeavyHitters(int depth, int width, int k) {
+        this.depth = depth;
+        this.width = width;
+        this.k = k;
+        this.counters = new AtomicLongArray(depth * width);
+    }
+
+    public long add(String key) {
+        int h1 = key.hashCode();
+        int h2 = spread(h1);
+        long estimate = Long.MAX_VALUE;
+        //double hashing: a linha i usa h1 + i * h2
+        for (int i = 0; i < depth; i++) {
+            int column = Math.floorMod(h1 + i * h2, width);
+            estimate = Math.min(estimate, counters.incrementAndGet(i * width + column));
+        }
+        total.increment();
+        //chaves já no topo só atualizam o heap a cada REFRESH ocorrências, para não disputar o lock a cada hit
+        if (top.contains(key) ? (estimate & (REFRESH - 1)) == 0 : estimate > minTop) {
+            offer(key, estimate);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        int h1 = key.hashCode();
+        int h2 = spread(h1);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, counters.get(i * width + Math.floorMod(h1 + i * h2, width)));
+        }
+        return estimate;
+    }
+
+    public boolean isHot(String key) {
+        return top.contains(key);
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    //maiores estimativas primeiro; a estimativa é relida do sketch, a do heap pode estar defasada
+    public synchronized List<HotKey> top() {
+        List<HotKey> keys = new ArrayList<>(heap.size());
+        heap.forEach(hotKey -> keys.add(new HotKey(hotKey.getKey(), estimate(hotKey.getKey()))));
+        keys.sort(Comparator.comparingLong(HotKey::getEstimate).reversed().thenComparing(HotKey::getKey));
+        return keys;
+    }
+
+    public synchronized void decay() {
+        for (int i = 0; i < counters.length(); i++) {
+            long value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, value >> 1));
+        }
+        List<HotKey> keys = new ArrayList<>(heap);
+        heap.clear();
+        heapKeys.clear();
+        for (HotKey hotKey : keys) {
+            if (hotKey.getEstimate() > 1) {
+                HotKey halved = new HotKey(hotKey.getKey(), hotKey.getEstimate() >> 1);
+                heap.add(halved);
+                heapKeys.put(halved.getKey(), halved);
+            }
+        }
+        publish();
+    }
+
+    private synchronized void offer(String key, long estimate) {
+        HotKey current = heapKeys.get(key);
+        if (current != null) {
+            if (estimate <= current.getEstimate()) {
+                return;
+            }
+            heap.remove(current);
+        } else if (heap.size() >= k) {
+            if (estimate <= heap.peek().getEstimate()) {
+                return;
+            }
+            heapKeys.remove(heap.poll().getKey());
+        }
+        HotKey hotKey = new HotKey(key, estimate);
+        heap.add(hotKey);
+        heapKeys.put(key, hotKey);
+        publish();
+    }
+
+    private void publish() {
+        minTop = heap.size() < k || heap.isEmpty() ? 0 : heap.peek().getEstimate();
+        top = Collections.unmodifiableSet(new HashSet<>(heapKeys.keySet()));
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) | 1;
+    }
+
+    public static class HotKey {
+
+        private final String key;
+
+        private final long estimate;
+
+        public HotKey(String key, long estimate) {
+            this.key = key;
+            this.estimate = estimate;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getEstimate() {
+            return estimate;
+        }
+    }
+}
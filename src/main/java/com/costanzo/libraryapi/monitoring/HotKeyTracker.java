@@ -0,0 +1,83 @@
+package com.costanzo.libraryapi.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//chaves quentes de livros, isbns, clientes e termos de busca; os caches consultam isHot para decidir o que manter
+@Component
+public class HotKeyTracker {
+
+    public enum Stream { BOOK, ISBN, CUSTOMER, SEARCH_TERM }
+
+    private static final ThreadLocal<Boolean> SUSPENDED = new ThreadLocal<>();
+
+    private final Map<Stream, HeavyHitters> streams = new EnumMap<>(Stream.class);
+
+    private final boolean enabled;
+
+    public HotKeyTracker(@Value("${application.hotkeys.enabled:true}") boolean enabled,
+                         @Value("${application.hotkeys.depth:4}") int depth,
+                         @Value("${application.hotkeys.width:2048}") int width,
+                         @Value("${application.hotkeys.top-k:20}") int topK) {
+        this.enabled = enabled;
+        for (Stream stream : Stream.values()) {
+            streams.put(stream, new HeavyHitters(depth, width, topK));
+        }
+    }
+
+    public void record(Stream stream, Object key) {
+        if (enabled && key != null && !Boolean.TRUE.equals(SUSPENDED.get())) {
+            streams.get(stream).add(key.toString());
+        }
+    }
+
+    //termos de busca sem diferenciar maiúsculas, como a própria busca
+    public void recordSearchTerm(String term) {
+        if (term != null && !term.isBlank()) {
+            record(Stream.SEARCH_TERM, term.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public boolean isHot(Stream stream, Object key) {
+        return enabled && key != null && streams.get(stream).isHot(key.toString());
+    }
+
+    public List<HeavyHitters.HotKey> top(Stream stream) {
+        return streams.get(stream).top();
+    }
+
+    public long total(Stream stream) {
+        return streams.get(stream).getTotal();
+    }
+
+    //chamadas internas (ex.: o warm-up) que não representam carga real não contam para o topo
+    public static Scope suspend() {
+        Boolean previous = SUSPENDED.get();
+        SUSPENDED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                SUSPENDED.remove();
+            } else {
+                SUSPENDED.set(previous);
+            }
+        };
+    }
+
+    //meia-vida das contagens: o topo reflete a carga recente, não a acumulada desde a subida
+    @Scheduled(fixedDelayString = "${application.hotkeys.decay-interval-ms:60000}")
+    public void decay() {
+        streams.values().forEach(HeavyHitters::decay);
+    }
+
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
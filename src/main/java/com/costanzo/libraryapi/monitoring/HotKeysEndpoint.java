@@ -0,0 +1,49 @@
+package com.costanzo.libraryapi.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+//GET /actuator/hotkeys e /actuator/hotkeys/{stream}: chaves mais frequentes
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeysEndpoint {
+
+    private final HotKeyTracker tracker;
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Map<String, Object> streams = new LinkedHashMap<>();
+        for (HotKeyTracker.Stream stream : HotKeyTracker.Stream.values()) {
+            streams.put(stream.name().toLowerCase(Locale.ROOT), stream(stream));
+        }
+        return streams;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys(@Selector String stream) {
+        for (HotKeyTracker.Stream candidate : HotKeyTracker.Stream.values()) {
+            if (candidate.name().equalsIgnoreCase(stream)) {
+                return stream(candidate);
+            }
+        }
+        //null vira 404 no actuator
+        return null;
+    }
+
+    private Map<String, Object> stream(HotKeyTracker.Stream stream) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", tracker.total(stream));
+        List<HeavyHitters.HotKey> top = tracker.top(stream);
+        result.put("top", top);
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.costanzo.libraryapi.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.costanzo.libraryapi.LateLoansJob")
+@Label("Late Loans Job")
+@Description("Run of the scheduled job that mails customers with late loans")
+@Category({"Library API", "Jobs"})
+@StackTrace(false)
+public class LateLoansJobEvent extends jdk.jfr.Event {
+
+    @Label("Late Loans")
+    public int lateLoans;
+
+    @Label("Mails Sent")
+    public int mailsSent;
+}
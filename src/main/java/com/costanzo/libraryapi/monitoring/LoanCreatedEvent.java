@@ -0,0 +1,24 @@
+package com.costanzo.libraryapi.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.costanzo.libraryapi.LoanCreated")
+@Label("Loan Created")
+@Description("Creation of a loan, including the availability check")
+@Category({"Library API", "Loans"})
+@StackTrace(false)
+public class LoanCreatedEvent extends jdk.jfr.Event {
+
+    @Label("Loan Id")
+    public long loanId;
+
+    @Label("Book Id")
+    public long bookId;
+
+    @Label("Customer")
+    public String customer;
+}
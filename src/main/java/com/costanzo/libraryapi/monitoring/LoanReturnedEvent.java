@@ -0,0 +1,21 @@
+package com.costanzo.libraryapi.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.costanzo.libraryapi.LoanReturned")
+@Label("Loan Returned")
+@Description("Update of a loan returned flag")
+@Category({"Library API", "Loans"})
+@StackTrace(false)
+public class LoanReturnedEvent extends jdk.jfr.Event {
+
+    @Label("Loan Id")
+    public long loanId;
+
+    @Label("Returned")
+    public boolean returned;
+}
@@ -0,0 +1,49 @@
+package com.costanzo.libraryapi.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//uptime da JVM quando a aplicação ficou pronta e quando respondeu a primeira requisição
+@Component
+@Slf4j
+public class StartupMetrics {
+
+    private final AtomicLong readyTime = new AtomicLong(-1);
+
+    private final AtomicLong firstRequestTime = new AtomicLong(-1);
+
+    public StartupMetrics(MeterRegistry registry) {
+        TimeGauge.builder("application.startup.ready.time", readyTime, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("JVM uptime when the application became ready")
+                .register(registry);
+        TimeGauge.builder("application.startup.first.request.time", firstRequestTime, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("JVM uptime when the first HTTP request was completed")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyTime.set(uptime());
+        log.info("application ready after {} ms of JVM uptime", readyTime.get());
+    }
+
+    @EventListener(ServletRequestHandledEvent.class)
+    public void onRequestHandled() {
+        if (firstRequestTime.get() < 0 && firstRequestTime.compareAndSet(-1, uptime())) {
+            log.info("first request served after {} ms of JVM uptime", firstRequestTime.get());
+        }
+    }
+
+    private long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,68 @@
+package com.costanzo.libraryapi.scheduling;
+
+import com.costanzo.libraryapi.model.repository.SchedulerLockRepository;
+import com.costanzo.libraryapi.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+//lock no banco entre instâncias, mantido de lockAtLeast até lockAtMost
+@Component
+public class JobLock {
+
+    private final SchedulerLockRepository repository;
+
+    private final TransactionTemplate transaction;
+
+    private final Duration lockAtMost;
+
+    private final Duration lockAtLeast;
+
+    private final String instance;
+
+    public JobLock(SchedulerLockRepository repository, PlatformTransactionManager transactionManager,
+                   @Value("${application.scheduling.lock-at-most:PT1H}") Duration lockAtMost,
+                   @Value("${application.scheduling.lock-at-least:PT5M}") Duration lockAtLeast,
+                   SchedulerInstance instance) {
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.lockAtMost = lockAtMost;
+        this.lockAtLeast = lockAtLeast;
+        this.instance = instance.getId();
+    }
+
+    public boolean tryLock(String name) {
+        Instant now = Instant.now();
+        Instant until = now.plus(lockAtMost);
+        return ShardContext.callOnBranch(ShardContext.DEFAULT_BRANCH, () -> {
+            Integer acquired = transaction.execute(status -> repository.acquire(name, instance, now, until));
+            if (acquired != null && acquired > 0) {
+                return true;
+            }
+            //primeira execução do job: a linha ainda não existe; só um insert vence a corrida
+            if (repository.existsById(name)) {
+                return false;
+            }
+            try {
+                transaction.execute(status -> repository.insert(name, instance, now, until));
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                return false;
+            }
+        });
+    }
+
+    public void unlock(String name, Instant lockedAt) {
+        Instant until = lockedAt.plus(lockAtLeast);
+        Instant now = Instant.now();
+        ShardContext.callOnBranch(ShardContext.DEFAULT_BRANCH, () ->
+                transaction.execute(status -> repository.release(name, instance, until.isAfter(now) ? until : now)));
+    }
+}
@@ -0,0 +1,77 @@
+package com.costanzo.libraryapi.scheduling;
+
+import com.costanzo.libraryapi.model.entity.JobRun;
+import com.costanzo.libraryapi.model.repository.JobRunRepository;
+import com.costanzo.libraryapi.sharding.ShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.function.Supplier;
+
+//roda um job em uma só instância, com o JobLock, e registra cada execução em job_run
+@Component
+@Slf4j
+public class JobRunner {
+
+    private final JobLock lock;
+
+    private final JobRunRepository repository;
+
+    private final TransactionTemplate transaction;
+
+    private final String instance;
+
+    public JobRunner(JobLock lock, JobRunRepository repository, PlatformTransactionManager transactionManager,
+                     SchedulerInstance instance) {
+        this.lock = lock;
+        this.repository = repository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.instance = instance.getId();
+    }
+
+    //work devolve a quantidade de itens processados
+    public boolean run(String job, Supplier<Integer> work) {
+        return run(job, null, null, work);
+    }
+
+    public boolean run(String job, Integer partition, Integer partitions, Supplier<Integer> work) {
+        String lockName = partition == null ? job : job + '#' + partition + '/' + partitions;
+        if (!lock.tryLock(lockName)) {
+            log.debug("job {} is running or already ran on another instance", lockName);
+            return false;
+        }
+        Instant startedAt = Instant.now();
+        JobRun run = save(JobRun.builder()
+                .job(job)
+                .partitionIndex(partition)
+                .partitions(partitions)
+                .instance(instance)
+                .startedAt(startedAt)
+                .status(JobRun.Status.RUNNING)
+                .build());
+        try {
+            Integer items = work.get();
+            run.setItems(items);
+            run.setStatus(JobRun.Status.SUCCEEDED);
+            return true;
+        } catch (RuntimeException e) {
+            run.setStatus(JobRun.Status.FAILED);
+            String error = String.valueOf(e);
+            run.setError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            throw e;
+        } finally {
+            run.setFinishedAt(Instant.now());
+            save(run);
+            lock.unlock(lockName, startedAt);
+        }
+    }
+
+    private JobRun save(JobRun run) {
+        return ShardContext.callOnBranch(ShardContext.DEFAULT_BRANCH, () -> transaction.execute(status -> repository.save(run)));
+    }
+}
@@ -0,0 +1,159 @@
+package com.costanzo.libraryapi.scheduling;
+
+import com.costanzo.libraryapi.config.WorkloadContext;
+import com.costanzo.libraryapi.invalidation.InvalidationEvent;
+import com.costanzo.libraryapi.invalidation.InvalidationListener;
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.service.EmailService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+//primeiro aviso de atraso perto do vencimento, por uma TimingWheel; o update condicional garante um só envio
+@Component
+@Slf4j
+public class LoanDueReminders implements InvalidationListener {
+
+    private final LoanRepository repository;
+
+    private final EmailService emailService;
+
+    private final boolean enabled;
+
+    private final Duration horizon;
+
+    private final String message;
+
+    private final TimingWheel<Long> wheel;
+
+    private final Counter notices;
+
+    public LoanDueReminders(LoanRepository repository, EmailService emailService,
+                            @Value("${application.loans.reminders.enabled:true}") boolean enabled,
+                            @Value("${application.loans.reminders.tick-ms:1000}") long tickMs,
+                            @Value("${application.loans.reminders.wheel-size:64}") int wheelSize,
+                            @Value("${application.loans.reminders.levels:4}") int levels,
+                            @Value("${application.loans.reminders.horizon:P1D}") Duration horizon,
+                            @Value("${application.mail.lateloans.message}") String message,
+                            MeterRegistry registry) {
+        this.repository = repository;
+        this.emailService = emailService;
+        this.enabled = enabled;
+        this.horizon = horizon;
+        this.message = message;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, levels, System.currentTimeMillis());
+        this.notices = Counter.builder("loan.overdue.notices").register(registry);
+        Gauge.builder("loan.reminders.pending", wheel, TimingWheel::size).register(registry);
+    }
+
+    //dentro de uma transação só agenda depois do commit: o empréstimo pode não existir
+    public void schedule(Loan loan) {
+        if (!enabled || loan.getId() == null) {
+            return;
+        }
+        Long id = loan.getId();
+        if (Boolean.TRUE.equals(loan.getReturned()) || loan.getDueDate() == null || loan.getOverdueNotifiedAt() != null) {
+            wheel.cancel(id);
+            return;
+        }
+        long deadline = toMillis(loan.getDueDate());
+        //fora do horizonte: o refill agenda quando estiver perto de vencer
+        if (deadline > System.currentTimeMillis() + horizon.toMillis()) {
+            wheel.cancel(id);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wheel.schedule(id, deadline);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wheel.schedule(id, deadline);
+            }
+        });
+    }
+
+    public void cancel(Long id) {
+        wheel.cancel(id);
+    }
+
+    @Override
+    public void onInvalidation(InvalidationEvent event) {
+        //alterados em outra instância: relê os empréstimos numa consulta só (sem ids, o próximo refill corrige)
+        if (!enabled || event.getType() != InvalidationEvent.Type.LOAN || event.getIds() == null) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(event.getIds());
+        for (Loan loan : repository.findAllById(event.getIds())) {
+            missing.remove(loan.getId());
+            schedule(loan);
+        }
+        missing.forEach(wheel::cancel);
+    }
+
+    @Scheduled(fixedDelayString = "${application.loans.reminders.refill-interval-ms:3600000}")
+    public void refill() {
+        if (!enabled) {
+            return;
+        }
+        List<Object[]> due;
+        try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+            due = repository.findDueWithoutNotice(LocalDateTime.now().plus(horizon));
+        }
+        for (Object[] loan : due) {
+            wheel.schedule((Long) loan[0], toMillis((LocalDateTime) loan[1]));
+        }
+        log.debug("scheduled {} loans due within {}", due.size(), horizon);
+    }
+
+    @Scheduled(fixedDelayString = "${application.loans.reminders.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<String> mails;
+        try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+            List<Long> claimed = new ArrayList<>(due.size());
+            for (Long id : due) {
+                if (repository.markOverdueNotified(id, now) > 0) {
+                    claimed.add(id);
+                }
+            }
+            mails = claimed.isEmpty() ? new ArrayList<>() : repository.findCustomerEmails(claimed);
+        }
+        //o aviso já foi marcado: se o envio falhar, o job diário de atrasados ainda avisa o cliente
+        if (!mails.isEmpty()) {
+            try {
+                emailService.sendMails(message, mails);
+                notices.increment(mails.size());
+            } catch (RuntimeException e) {
+                log.warn("could not send {} overdue notices", mails.size(), e);
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,25 @@
+package com.costanzo.libraryapi.scheduling;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+//identifica esta instância nos locks e no histórico de execuções; HOSTNAME evita consulta de DNS na subida
+@Component
+public class SchedulerInstance {
+
+    private final String id;
+
+    public SchedulerInstance() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            host = "local";
+        }
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        this.id = (host.length() > 55 ? host.substring(0, 55) : host) + ':' + suffix;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,111 @@
+package com.costanzo.libraryapi.scheduling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//timing wheel hierárquica de chaves com prazo em epoch millis; o prazo é arredondado para cima no tick
+public class TimingWheel<K> {
+
+    private final long tickMs;
+
+    private final int wheelSize;
+
+    private final int levels;
+
+    //guardados por this
+    private final List<Map<K, Long>> buckets;
+
+    private final Map<K, Long> overflow = new HashMap<>();
+
+    private final Map<K, Long> expired = new LinkedHashMap<>();
+
+    //bucket onde cada chave está, para cancelar sem procurar
+    private final Map<K, Map<K, Long>> index = new HashMap<>();
+
+    private long current;
+
+    public TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.buckets = new ArrayList<>(levels * wheelSize);
+        for (int i = 0; i < levels * wheelSize; i++) {
+            buckets.add(new HashMap<>());
+        }
+        this.current = Math.floorDiv(startMs, tickMs) * tickMs;
+    }
+
+    //reagendar uma chave substitui o prazo anterior
+    public synchronized void schedule(K key, long deadlineMs) {
+        cancel(key);
+        place(key, -Math.floorDiv(-deadlineMs, tickMs) * tickMs);
+    }
+
+    public synchronized boolean cancel(K key) {
+        Map<K, Long> bucket = index.remove(key);
+        return bucket != null && bucket.remove(key) != null;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    //chaves com prazo até nowMs, na ordem em que venceram
+    public synchronized List<K> advance(long nowMs) {
+        long topSpan = span(levels - 1);
+        while (current + tickMs <= nowMs) {
+            current += tickMs;
+            if (current % (topSpan * wheelSize) == 0) {
+                cascade(overflow);
+            }
+            //de cima para baixo: as chaves dos níveis superiores descem antes de o nível 0 expirar
+            for (int level = levels - 1; level >= 0; level--) {
+                long span = span(level);
+                if (current % span == 0) {
+                    cascade(buckets.get(level * wheelSize + (int) (current / span % wheelSize)));
+                }
+            }
+        }
+        List<K> due = new ArrayList<>(expired.keySet());
+        due.forEach(index::remove);
+        expired.clear();
+        return due;
+    }
+
+    private void place(K key, long deadline) {
+        Map<K, Long> target = overflow;
+        if (deadline <= current) {
+            target = expired;
+        } else {
+            for (int level = 0; level < levels; level++) {
+                long span = span(level);
+                if (deadline < current / span * span + span * wheelSize) {
+                    target = buckets.get(level * wheelSize + (int) (deadline / span % wheelSize));
+                    break;
+                }
+            }
+        }
+        target.put(key, deadline);
+        index.put(key, target);
+    }
+
+    private void cascade(Map<K, Long> bucket) {
+        if (bucket.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(bucket.entrySet());
+        bucket.clear();
+        entries.forEach(entry -> place(entry.getKey(), entry.getValue()));
+    }
+
+    private long span(int level) {
+        long span = tickMs;
+        for (int i = 0; i < level; i++) {
+            span *= wheelSize;
+        }
+        return span;
+    }
+}
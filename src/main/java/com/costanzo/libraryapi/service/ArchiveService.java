@@ -0,0 +1,72 @@
+package com.costanzo.libraryapi.service;
+
+import com.costanzo.libraryapi.archive.LoanArchive;
+import com.costanzo.libraryapi.config.WorkloadContext;
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.scheduling.JobRunner;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveService {
+
+    private static final String CRON_ARCHIVE_LOANS = "0 0 2 1/1 * ?";
+
+    public static final String ARCHIVE_JOB = "archiveReturnedLoans";
+
+    @Value("${application.archive.loans.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${application.archive.loans.chunk-size:500}")
+    private int chunkSize;
+
+    private final LoanArchive archive;
+    private final LoanRepository repository;
+    private final PlatformTransactionManager transactionManager;
+    private final JobRunner jobRunner;
+
+    @Scheduled(cron = CRON_ARCHIVE_LOANS)
+    public synchronized void archiveReturnedLoans() {
+        //com várias instâncias só uma arquiva; as outras encontrariam as mesmas linhas
+        jobRunner.run(ARCHIVE_JOB, () -> {
+            try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+                return archive();
+            }
+        });
+    }
+
+    private int archive() {
+        LocalDate before = LocalDate.now().minusDays(minAgeDays);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int archived = 0;
+        Integer moved;
+        do {
+            //segmento e delete na mesma transação: o lote vai inteiro para o arquivo ou fica na tabela quente
+            moved = transaction.execute(status -> {
+                List<Loan> loans = repository.findReturnedBefore(before, PageRequest.of(0, chunkSize));
+                if (loans.isEmpty()) {
+                    return 0;
+                }
+                archive.write(loans);
+                repository.deleteByIds(loans.stream().map(Loan::getId).collect(Collectors.toList()));
+                return loans.size();
+            });
+            archived += moved;
+        } while (moved == chunkSize);
+        log.info("archived {} returned loans older than {}", archived, before);
+        return archived;
+    }
+}
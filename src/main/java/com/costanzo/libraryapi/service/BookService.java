@@ -5,6 +5,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
@@ -13,11 +16,22 @@ public interface BookService {
 
     Optional<Book> getByID(Long id);
 
+    List<Book> getByIDs(Collection<Long> ids);
+
     void delete(Book book);
 
+    boolean deleteById(Long id);
+
     Book update(Book book);
 
+    Optional<Book> updateById(Long id, Book changes);
+
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    //apenas os campos pedidos de BookDTO (todos quando vazio)
+    Page<Map<String, Object>> findFields(Book filter, Collection<String> fields, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    List<Book> getBooksByIsbns(Collection<String> isbns);
 }
@@ -0,0 +1,216 @@
+package com.costanzo.libraryapi.service;
+
+import com.costanzo.libraryapi.config.LoanProperties;
+import com.costanzo.libraryapi.config.WorkloadContext;
+import com.costanzo.libraryapi.model.entity.Fine;
+import com.costanzo.libraryapi.model.entity.JobCheckpoint;
+import com.costanzo.libraryapi.model.repository.FineRepository;
+import com.costanzo.libraryapi.model.repository.JobCheckpointRepository;
+import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.scheduling.JobRunner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+//multa diária dos empréstimos atrasados, em partições com checkpoint: retomada sem multa duplicada
+@Service
+@Slf4j
+public class FineAccrualService {
+
+    //a cada hora: a execução do dia só roda uma vez; as seguintes retomam partições interrompidas
+    private static final String CRON_ACCRUE_FINES = "0 15 * * * ?";
+
+    public static final String FINES_JOB = "accrueFines";
+
+    private final LoanRepository loanRepository;
+
+    private final FineRepository fineRepository;
+
+    private final JobCheckpointRepository checkpointRepository;
+
+    private final LoanProperties loanProperties;
+
+    private final JobRunner jobRunner;
+
+    private final TransactionTemplate transaction;
+
+    private final BigDecimal dailyAmount;
+
+    private final int partitions;
+
+    private final int parallelism;
+
+    private final int chunkSize;
+
+    private final Counter accrued;
+
+    private final Timer partitionTimer;
+
+    private final AtomicLong throughput = new AtomicLong();
+
+    public FineAccrualService(LoanRepository loanRepository, FineRepository fineRepository,
+                              JobCheckpointRepository checkpointRepository, LoanProperties loanProperties,
+                              JobRunner jobRunner, PlatformTransactionManager transactionManager,
+                              @Value("${application.fines.daily-amount:1.00}") BigDecimal dailyAmount,
+                              @Value("${application.fines.partitions:8}") int partitions,
+                              @Value("${application.fines.parallelism:2}") int parallelism,
+                              @Value("${application.fines.chunk-size:500}") int chunkSize,
+                              MeterRegistry registry) {
+        this.loanRepository = loanRepository;
+        this.fineRepository = fineRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.loanProperties = loanProperties;
+        this.jobRunner = jobRunner;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.dailyAmount = dailyAmount;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.accrued = Counter.builder("fines.accrued").register(registry);
+        this.partitionTimer = Timer.builder("fines.accrual.partition").register(registry);
+        Gauge.builder("fines.accrual.throughput", throughput, AtomicLong::get)
+                .description("Fines per second written by the last accrual run")
+                .register(registry);
+    }
+
+    @Scheduled(cron = CRON_ACCRUE_FINES)
+    public void accrueFines() {
+        jobRunner.run(FINES_JOB, () -> accrue(LocalDate.now()));
+    }
+
+    int accrue(LocalDate date) {
+        List<JobCheckpoint> pending = checkpoints(date).stream()
+                .filter(checkpoint -> checkpoint.getFinishedAt() == null)
+                .collect(Collectors.toList());
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, pending.size()), task -> {
+            Thread thread = new Thread(task, "fine-accrual-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int fines = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>(pending.size());
+            for (JobCheckpoint checkpoint : pending) {
+                results.add(executor.submit(() -> partitionTimer.recordCallable(() -> accrue(date, checkpoint))));
+            }
+            for (Future<Integer> result : results) {
+                fines += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fine accrual interrupted", e);
+        } catch (ExecutionException e) {
+            //as outras partições terminam o lote corrente ou param na interrupção; o checkpoint guarda o progresso
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            //só libera o job depois que as outras partições pararem, com o checkpoint delas gravado
+            awaitTermination(executor);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        throughput.set(fines * 1000L / millis);
+        log.info("accrued {} fines for {} in {} partitions, {} ms ({} fines/s)",
+                fines, date, pending.size(), millis, throughput.get());
+        return fines;
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("fine accrual partitions still running after shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //as faixas são fixadas na primeira execução do dia, para a retomada processar as mesmas
+    private List<JobCheckpoint> checkpoints(LocalDate date) {
+        List<JobCheckpoint> checkpoints = checkpointRepository.findByJobAndRunKeyOrderByPartitionIndex(FINES_JOB, date.toString());
+        if (!checkpoints.isEmpty()) {
+            return checkpoints;
+        }
+        Object[] range = loanRepository.findOverdueIdRange(date.atStartOfDay(), loanProperties.legacyLateLoanDate(date)).get(0);
+        if (range[0] == null) {
+            return checkpoints;
+        }
+        long min = (Long) range[0];
+        long max = (Long) range[1];
+        long width = (max - min) / partitions + 1;
+        for (int i = 0; i < partitions && min + i * width <= max; i++) {
+            long rangeStart = min - 1 + i * width;
+            checkpoints.add(JobCheckpoint.builder()
+                    .job(FINES_JOB)
+                    .runKey(date.toString())
+                    .partitionIndex(i)
+                    .rangeStart(rangeStart)
+                    .rangeEnd(Math.min(max, rangeStart + width))
+                    .lastId(rangeStart)
+                    .items(0)
+                    .build());
+        }
+        return transaction.execute(status -> checkpointRepository.saveAll(checkpoints));
+    }
+
+    private int accrue(LocalDate date, JobCheckpoint checkpoint) {
+        LocalDateTime cutoff = date.atStartOfDay();
+        LocalDate legacyLoanDate = loanProperties.legacyLateLoanDate(date);
+        int fines = 0;
+        try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+            long lastId = checkpoint.getLastId();
+            List<Long> ids;
+            do {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Fine accrual interrupted at loan " + lastId);
+                }
+                ids = loanRepository.findOverdueIds(cutoff, legacyLoanDate, lastId, checkpoint.getRangeEnd(),
+                        PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                List<Fine> chunk = ids.stream()
+                        .map(id -> Fine.builder().loanId(id).accrualDate(date).amount(dailyAmount).build())
+                        .collect(Collectors.toList());
+                long chunkLastId = ids.get(ids.size() - 1);
+                //multas e checkpoint na mesma transação: o lote é gravado inteiro ou refeito na retomada
+                transaction.execute(status -> {
+                    fineRepository.saveAll(chunk);
+                    return checkpointRepository.advance(checkpoint.getId(), chunkLastId, chunk.size());
+                });
+                lastId = chunkLastId;
+                fines += chunk.size();
+                accrued.increment(chunk.size());
+            } while (ids.size() == chunkSize);
+            transaction.execute(status -> checkpointRepository.finish(checkpoint.getId(), Instant.now()));
+        }
+        return fines;
+    }
+}
@@ -6,19 +6,37 @@ import com.costanzo.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface LoanService {
     Loan save(Loan loan);
 
+    //empréstimos de livros já emprestados são ignorados; retorna apenas os que foram salvos
+    List<Loan> saveAllAvailable(List<Loan> loans);
+
     Optional<Loan> getById(Long id);
 
     Loan update(Loan loan);
 
+    boolean updateReturned(Long id, Boolean returned);
+
+    //ids e isbns na mesma transação; retorna quantos empréstimos em aberto foram devolvidos
+    int returnLoans(Collection<Long> ids, Collection<String> isbns);
+
     Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable);
 
+    //apenas os campos pedidos de LoanDTO (todos quando vazio)
+    Page<Map<String, Object>> findFields(LoanFilterDTO filterDTO, Collection<String> fields, Pageable pageable);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    Set<Long> getLoanedBookIds(Collection<Long> bookIds);
+
     List<Loan> getAllLateLoans();
+
+    List<Loan> getLateLoans(int partition, int partitions);
 }
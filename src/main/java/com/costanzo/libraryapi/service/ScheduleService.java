@@ -1,12 +1,17 @@
 package com.costanzo.libraryapi.service;
 
+import com.costanzo.libraryapi.config.WorkloadContext;
 import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.monitoring.LateLoansJobEvent;
+import com.costanzo.libraryapi.scheduling.JobRunner;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,19 +20,52 @@ public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
 
+    public static final String LATE_LOANS_JOB = "sendMailToLateLoans";
+
     @Value("${application.mail.lateloans.message}")
     private String message;
 
+    //com mais de uma partição as instâncias dividem os empréstimos atrasados por id
+    @Value("${application.scheduling.late-loans.partitions:1}")
+    private int partitions;
+
     private final LoanService loanservice;
     private final EmailService emailService;
+    private final JobRunner jobRunner;
 
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendMailToLateLoans(){
-       List<Loan> allLateLoans =  loanservice.getAllLateLoans();
+        if (partitions <= 1) {
+            jobRunner.run(LATE_LOANS_JOB, () -> sendMails(loanservice::getAllLateLoans));
+            return;
+        }
+        //cada instância começa por uma partição diferente; quem pegar o lock da partição a processa
+        int offset = ThreadLocalRandom.current().nextInt(partitions);
+        for (int i = 0; i < partitions; i++) {
+            int partition = (offset + i) % partitions;
+            jobRunner.run(LATE_LOANS_JOB, partition, partitions,
+                    () -> sendMails(() -> loanservice.getLateLoans(partition, partitions)));
+        }
+    }
+
+    private int sendMails(Supplier<List<Loan>> lateLoans) {
+       LateLoansJobEvent event = new LateLoansJobEvent();
+       event.begin();
+       List<Loan> allLateLoans;
+       try (WorkloadContext.Scope batch = WorkloadContext.batch()) {
+           allLateLoans = lateLoans.get();
+       }
        List<String> mailsList = allLateLoans.stream().map(
                loan -> loan.getCustomerEmail()
        ).collect(Collectors.toList());
 
-       emailService.sendMails(message, mailsList);
+       if (!mailsList.isEmpty()) {
+           emailService.sendMails(message, mailsList);
+       }
+
+       event.lateLoans = allLateLoans.size();
+       event.mailsSent = mailsList.size();
+       event.commit();
+       return mailsList.size();
     }
 }
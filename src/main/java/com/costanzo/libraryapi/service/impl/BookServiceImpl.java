@@ -1,71 +1,281 @@
 package com.costanzo.libraryapi.service.impl;
 
+import com.costanzo.libraryapi.cache.BookCache;
+import com.costanzo.libraryapi.cache.BookResponseCache;
+import com.costanzo.libraryapi.cache.BookSearchCache;
+import com.costanzo.libraryapi.cache.SingleFlight;
+import com.costanzo.libraryapi.events.DomainEventPublisher;
 import com.costanzo.libraryapi.exception.BusinessException;
+import com.costanzo.libraryapi.invalidation.InvalidationBus;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.repository.BookRepository;
+import com.costanzo.libraryapi.model.repository.BookRepositoryCustom;
+import com.costanzo.libraryapi.monitoring.BookSearchEvent;
 import com.costanzo.libraryapi.service.BookService;
+import com.costanzo.libraryapi.sharding.ScatterGather;
+import com.costanzo.libraryapi.sharding.ShardContext;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
 
-    public BookServiceImpl(BookRepository repository) {
+    private BookCache cache;
+
+    private BookSearchCache searchCache;
+
+    private BookResponseCache responseCache;
+
+    private ScatterGather scatterGather;
+
+    private InvalidationBus invalidationBus;
+
+    private DomainEventPublisher domainEvents;
+
+    //leituras simultâneas do mesmo livro compartilham uma única consulta ao banco
+    private final SingleFlight<Long, Optional<Book>> idFlights = new SingleFlight<>(book -> book.map(BookCache::copy));
+
+    private final SingleFlight<String, Optional<Book>> isbnFlights = new SingleFlight<>(book -> book.map(BookCache::copy));
+
+    public BookServiceImpl(BookRepository repository, BookCache cache, BookSearchCache searchCache,
+                           BookResponseCache responseCache, ScatterGather scatterGather,
+                           InvalidationBus invalidationBus, DomainEventPublisher domainEvents) {
         this.repository = repository;
+        this.cache = cache;
+        this.searchCache = searchCache;
+        this.responseCache = responseCache;
+        this.scatterGather = scatterGather;
+        this.invalidationBus = invalidationBus;
+        this.domainEvents = domainEvents;
     }
 
     @Override
+    @Transactional
     public Book save(Book book) {
         if(repository.existsByIsbn(book.getIsbn())){
             throw new BusinessException("isbn já cadastrado.");
         }
-        return repository.save(book);
+        if (book.getBranch() == null) {
+            book.setBranch(ShardContext.getBranch());
+        }
+        long generation = cache.generation();
+        Book savedBook = repository.save(book);
+        cache.put(savedBook, generation);
+        searchCache.invalidate();
+        invalidationBus.publishBook(savedBook.getId());
+        domainEvents.bookCreated(savedBook.getId());
+        return savedBook;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Book> getByID(Long id) {
-        return this.repository.findById(id);
+        Optional<Book> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return idFlights.load(id, () -> {
+            long generation = cache.generation();
+            Optional<Book> book = this.repository.findById(id);
+            book.ifPresent(found -> cache.put(found, generation));
+            return book;
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Book> getByIDs(Collection<Long> ids) {
+        List<Book> books = new ArrayList<>(ids.size());
+        Set<Long> misses = new HashSet<>();
+        for (Long id : ids) {
+            Optional<Book> cached = cache.get(id);
+            if (cached.isPresent()) {
+                books.add(cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long generation = cache.generation();
+            List<Book> found = repository.findAllById(misses);
+            found.forEach(book -> cache.put(book, generation));
+            books.addAll(found);
+        }
+        return books;
+    }
+
+    @Override
+    @Transactional
     public void delete(Book book) {
         if(book == null || book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null");
         }
         this.repository.delete(book);
+        cache.evict(book.getId());
+        responseCache.evict(book.getId());
+        searchCache.invalidate();
+        invalidationBus.publishBook(book.getId());
+        domainEvents.bookDeleted(book.getId());
+    }
 
+    @Override
+    @Transactional
+    public boolean deleteById(Long id) {
+        if(id == null){
+            throw new IllegalArgumentException("Book id cant be null");
+        }
+        int deleted = this.repository.deleteBookById(id);
+        if (deleted == 0) {
+            return false;
+        }
+        cache.evict(id);
+        responseCache.evict(id);
+        searchCache.invalidate();
+        invalidationBus.publishBook(id);
+        domainEvents.bookDeleted(id);
+        return true;
     }
 
     @Override
+    @Transactional
     public Book update(Book book) {
         if(book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id cant be null");
         }
-        return this.repository.save(book);
+        long generation = cache.generation();
+        Book updatedBook = this.repository.save(book);
+        cache.put(updatedBook, generation);
+        responseCache.evict(updatedBook.getId());
+        searchCache.invalidate();
+        invalidationBus.publishBook(updatedBook.getId());
+        domainEvents.bookUpdated(updatedBook.getId());
+        return updatedBook;
     }
 
     @Override
+    @Transactional
+    public Optional<Book> updateById(Long id, Book changes) {
+        if(id == null) {
+            throw new IllegalArgumentException("Book id cant be null");
+        }
+        int updated = this.repository.updateTitleAndAuthor(id, changes.getTitle(), changes.getAuthor(), LocalDateTime.now());
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        //relê a linha na mesma transação, no primário: versão e last_modified vêm do banco
+        Optional<Book> book = this.repository.findById(id);
+        if (book.isPresent()) {
+            cache.refresh(book.get());
+        } else {
+            cache.evict(id);
+        }
+        responseCache.evict(id);
+        searchCache.invalidate();
+        invalidationBus.publishBook(id);
+        domainEvents.bookUpdated(id);
+        return book;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter,
-                ExampleMatcher
-                        .matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)) ;
-        return repository.findAll(example, pageRequest);
+        BookSearchEvent event = new BookSearchEvent();
+        event.begin();
+        Example<Book> example = example(filter);
+        Page<Book> result = searchCache.get(filter, pageRequest, () -> scatterGather.isCrossBranch()
+                ? scatterGather.find(pageable -> repository.findAll(example, pageable), pageRequest)
+                : repository.findAll(example, pageRequest));
+        if (event.shouldCommit()) {
+            event.title = filter.getTitle();
+            event.author = filter.getAuthor();
+            event.isbn = filter.getIsbn();
+            event.pageNumber = pageRequest.getPageNumber();
+            event.pageSize = pageRequest.getPageSize();
+            event.rows = result.getNumberOfElements();
+            event.totalElements = result.getTotalElements();
+            event.commit();
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFields(Book filter, Collection<String> fields, Pageable pageRequest) {
+        checkFields(fields, BookRepositoryCustom.FIELDS.keySet());
+        Example<Book> example = example(filter);
+        if (scatterGather.isCrossBranch()) {
+            return scatterGather.find(pageable -> repository.findFields(example, fields, pageable), pageRequest);
+        }
+        return repository.findFields(example, fields, pageRequest);
     }
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        Optional<Long> cachedId = cache.getIdByIsbn(ShardContext.getBranch(), isbn);
+        if (cachedId.isPresent()) {
+            Optional<Book> cached = cache.get(cachedId.get());
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        return isbnFlights.load(ShardContext.getBranch() + '/' + isbn, () -> {
+            long generation = cache.generation();
+            Optional<Book> book = repository.findByIsbn(isbn);
+            book.ifPresent(found -> cache.put(found, generation));
+            return book;
+        });
     }
 
+    @Override
+    public List<Book> getBooksByIsbns(Collection<String> isbns) {
+        List<Book> books = new ArrayList<>(isbns.size());
+        Set<String> misses = new HashSet<>();
+        for (String isbn : isbns) {
+            Optional<Book> cached = cache.getIdByIsbn(ShardContext.getBranch(), isbn).flatMap(cache::get);
+            if (cached.isPresent()) {
+                books.add(cached.get());
+            } else {
+                misses.add(isbn);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long generation = cache.generation();
+            List<Book> found = repository.findByIsbnIn(misses);
+            found.forEach(book -> cache.put(book, generation));
+            books.addAll(found);
+        }
+        return books;
+    }
+
+    private static Example<Book> example(Book filter) {
+        return Example.of(filter,
+                ExampleMatcher
+                        .matching()
+                        .withIgnoreCase()
+                        .withIgnoreNullValues()
+                        .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
+    }
 
+    static void checkFields(Collection<String> fields, Set<String> allowed) {
+        for (String field : fields) {
+            if (!allowed.contains(field)) {
+                throw new BusinessException("Unknown field: " + field);
+            }
+        }
+    }
 }
@@ -1,18 +1,44 @@
 package com.costanzo.libraryapi.service.impl;
 
 import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.archive.LoanArchive;
+import com.costanzo.libraryapi.config.LoanProperties;
+import com.costanzo.libraryapi.events.DomainEventPublisher;
 import com.costanzo.libraryapi.exception.BusinessException;
+import com.costanzo.libraryapi.invalidation.InvalidationBus;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
 import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.model.repository.LoanRepositoryCustom;
+import com.costanzo.libraryapi.model.repository.LoanSpecification;
+import com.costanzo.libraryapi.monitoring.LoanCreatedEvent;
+import com.costanzo.libraryapi.monitoring.LoanReturnedEvent;
+import com.costanzo.libraryapi.scheduling.LoanDueReminders;
 import com.costanzo.libraryapi.service.LoanService;
+import com.costanzo.libraryapi.sharding.ScatterGather;
+import com.costanzo.libraryapi.sharding.ShardContext;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class LoanServiceImpl implements LoanService {
@@ -20,16 +46,85 @@ public class LoanServiceImpl implements LoanService {
 
     private LoanRepository repository;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    private LoanArchive archive;
+
+    private ScatterGather scatterGather;
+
+    private InvalidationBus invalidationBus;
+
+    private LoanProperties loanProperties;
+
+    private LoanDueReminders dueReminders;
+
+    private DomainEventPublisher domainEvents;
+
+    public LoanServiceImpl(LoanRepository repository, LoanArchive archive, ScatterGather scatterGather,
+                           InvalidationBus invalidationBus, LoanProperties loanProperties,
+                           LoanDueReminders dueReminders, DomainEventPublisher domainEvents) {
         this.repository = repository;
+        this.archive = archive;
+        this.scatterGather = scatterGather;
+        this.invalidationBus = invalidationBus;
+        this.loanProperties = loanProperties;
+        this.dueReminders = dueReminders;
+        this.domainEvents = domainEvents;
     }
 
     @Override
+    @Transactional
     public Loan save(Loan loan) {
+        LoanCreatedEvent event = new LoanCreatedEvent();
+        event.begin();
         if (repository.existsByBookAndNotReturned(loan.getBook())){
             throw new BusinessException("Book already loaned");
         }
-        return repository.save(loan);
+        if (loan.getBranch() == null) {
+            loan.setBranch(ShardContext.getBranch());
+        }
+        if (loan.getDueDate() == null) {
+            loan.setDueDate(loanProperties.dueDate(loan));
+        }
+        Loan savedLoan = repository.save(loan);
+        invalidationBus.publishLoan(savedLoan.getId());
+        dueReminders.schedule(savedLoan);
+        domainEvents.loanCreated(savedLoan);
+        if (event.shouldCommit()) {
+            event.loanId = savedLoan.getId() != null ? savedLoan.getId() : 0L;
+            event.bookId = loan.getBook() != null && loan.getBook().getId() != null ? loan.getBook().getId() : 0L;
+            event.customer = loan.getCustomer();
+            event.commit();
+        }
+        return savedLoan;
+    }
+
+    @Override
+    @Transactional
+    public List<Loan> saveAllAvailable(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> bookIds = loans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toList());
+        Set<Long> loanedBookIds = new HashSet<>(repository.findNotReturnedBookIds(bookIds));
+        List<Loan> available = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            //add retorna false para livros emprestados ou repetidos no mesmo lote
+            if (loanedBookIds.add(loan.getBook().getId())) {
+                if (loan.getBranch() == null) {
+                    loan.setBranch(ShardContext.getBranch());
+                }
+                if (loan.getDueDate() == null) {
+                    loan.setDueDate(loanProperties.dueDate(loan));
+                }
+                available.add(loan);
+            }
+        }
+        List<Loan> saved = repository.saveAll(available);
+        invalidationBus.publishLoans(saved.stream().map(Loan::getId).collect(Collectors.toList()));
+        saved.forEach(loan -> {
+            dueReminders.schedule(loan);
+            domainEvents.loanCreated(loan);
+        });
+        return saved;
     }
 
     @Override
@@ -38,24 +133,166 @@ public class LoanServiceImpl implements LoanService {
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        LoanReturnedEvent event = new LoanReturnedEvent();
+        event.begin();
+        Loan updatedLoan = repository.save(loan);
+        invalidationBus.publishLoan(updatedLoan.getId());
+        dueReminders.schedule(updatedLoan);
+        if (Boolean.TRUE.equals(updatedLoan.getReturned())) {
+            domainEvents.loanReturned(updatedLoan.getId());
+        }
+        if (event.shouldCommit()) {
+            event.loanId = loan.getId() != null ? loan.getId() : 0L;
+            event.returned = Boolean.TRUE.equals(loan.getReturned());
+            event.commit();
+        }
+        return updatedLoan;
+    }
+
+    @Override
+    @Transactional
+    public boolean updateReturned(Long id, Boolean returned) {
+        LoanReturnedEvent event = new LoanReturnedEvent();
+        event.begin();
+        int updated = repository.updateReturned(id, returned);
+        //já estava com o mesmo valor: nada a publicar, mas o empréstimo existe
+        if (updated == 0) {
+            return repository.existsById(id);
+        }
+        invalidationBus.publishLoan(id);
+        if (Boolean.TRUE.equals(returned)) {
+            dueReminders.cancel(id);
+            domainEvents.loanReturned(id);
+        } else {
+            repository.findById(id).ifPresent(dueReminders::schedule);
+        }
+        if (event.shouldCommit()) {
+            event.loanId = id;
+            event.returned = Boolean.TRUE.equals(returned);
+            event.commit();
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int returnLoans(Collection<Long> ids, Collection<String> isbns) {
+        //ids inexistentes ou já devolvidos não geram invalidação nem evento
+        Set<Long> open = new LinkedHashSet<>();
+        if (ids != null && !ids.isEmpty()) {
+            open.addAll(repository.findOpenIdsForUpdate(ids));
+        }
+        if (isbns != null && !isbns.isEmpty()) {
+            open.addAll(repository.findOpenIdsByIsbnsForUpdate(isbns));
+        }
+        if (open.isEmpty()) {
+            return 0;
+        }
+        List<Long> openIds = new ArrayList<>(open);
+        int returned = repository.returnByIds(openIds);
+        invalidationBus.publishLoans(openIds);
+        openIds.forEach(dueReminders::cancel);
+        openIds.forEach(domainEvents::loanReturned);
+        return returned;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable) {
-        return repository.findByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer(), pageable);
+        if (scatterGather.isCrossBranch()) {
+            return scatterGather.find(page -> repository.findAll(LoanSpecification.of(filterDTO), page), pageable);
+        }
+        return repository.findAll(LoanSpecification.of(filterDTO), pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFields(LoanFilterDTO filterDTO, Collection<String> fields, Pageable pageable) {
+        BookServiceImpl.checkFields(fields, LoanRepositoryCustom.FIELDS.keySet());
+        if (scatterGather.isCrossBranch()) {
+            return scatterGather.find(page -> repository.findFields(LoanSpecification.of(filterDTO), fields, page), pageable);
+        }
+        return repository.findFields(LoanSpecification.of(filterDTO), fields, pageable);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
-        return repository.findByBook(book, pageable);
+        if (pageable.isUnpaged()) {
+            Page<Loan> hot = repository.findByBook(book, pageable);
+            Page<Loan> archived = archive.findByBookId(book.getId(), null, 0, Integer.MAX_VALUE);
+            if (!archived.hasContent()) {
+                return hot;
+            }
+            List<Loan> all = new ArrayList<>(hot.getContent());
+            all.addAll(withBook(archived, book));
+            return new PageImpl<>(all, pageable, hot.getTotalElements() + archived.getTotalElements());
+        }
+        if (pageable.getSort().isUnsorted()) {
+            //sem ordenação pedida o histórico arquivado, mais antigo, vem depois de todas as linhas da tabela quente
+            Page<Loan> hot = repository.findByBook(book, pageable);
+            long archivedOffset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            Page<Loan> archived = archive.findByBookId(book.getId(), null, archivedOffset,
+                    pageable.getPageSize() - hot.getNumberOfElements());
+            if (archived.getTotalElements() == 0) {
+                return hot;
+            }
+            List<Loan> content = new ArrayList<>(hot.getContent());
+            content.addAll(withBook(archived, book));
+            return new PageImpl<>(content, pageable, hot.getTotalElements() + archived.getTotalElements());
+        }
+        //ordenado: as duas fontes trazem as primeiras offset + size linhas na ordem pedida e são intercaladas
+        int window = (int) (pageable.getOffset() + pageable.getPageSize());
+        Page<Loan> hot = repository.findByBook(book, PageRequest.of(0, window, pageable.getSort()));
+        //todo o histórico é do mesmo livro: ordenar por book.* não muda a ordem dele
+        Sort archiveSort = Sort.by(pageable.getSort().stream()
+                .filter(order -> !order.getProperty().startsWith("book."))
+                .collect(Collectors.toList()));
+        Page<Loan> archived = archive.findByBookId(book.getId(), ScatterGather.comparator(archiveSort), 0, window);
+        withBook(archived, book);
+        List<Loan> merged = ScatterGather.merge(Arrays.asList(hot, archived), ScatterGather.comparator(pageable.getSort()));
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable,
+                hot.getTotalElements() + archived.getTotalElements());
+    }
+
+    private static List<Loan> withBook(Page<Loan> loans, Book book) {
+        loans.forEach(loan -> loan.setBook(book));
+        return loans.getContent();
+    }
+
+    @Override
+    public Set<Long> getLoanedBookIds(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(repository.findNotReturnedBookIds(bookIds));
     }
 
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findLateLoans(LocalDateTime.now(), loanProperties.legacyLateLoanDate());
+    }
+
+    @Override
+    public List<Loan> getLateLoans(int partition, int partitions) {
+        //truncado ao minuto: as instâncias disparadas pelo mesmo cron calculam as mesmas faixas
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDate legacyLoanDate = loanProperties.legacyLateLoanDate();
+        Object[] range = repository.findLateIdRange(now, legacyLoanDate).get(0);
+        if (range[0] == null) {
+            return Collections.emptyList();
+        }
+        long min = (Long) range[0];
+        long max = (Long) range[1];
+        long width = (max - min) / partitions + 1;
+        long fromId = min + partition * width;
+        if (fromId > max) {
+            return Collections.emptyList();
+        }
+        return repository.findLateLoansInRange(now, legacyLoanDate, fromId, Math.min(max, fromId + width - 1));
     }
 }
@@ -0,0 +1,35 @@
+package com.costanzo.libraryapi.sharding;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+//define a filial da requisição a partir do header X-Branch
+@Component
+public class BranchFilter extends OncePerRequestFilter {
+
+    public static final String BRANCH_HEADER = "X-Branch";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String branch = request.getHeader(BRANCH_HEADER);
+        if (ShardContext.ALL_BRANCHES.equals(branch) && !HttpMethod.GET.matches(request.getMethod())) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Cross-branch requests are read-only");
+            return;
+        }
+        ShardContext.setBranch(branch);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ShardContext.clear();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.costanzo.libraryapi.sharding;
+
+import com.costanzo.libraryapi.model.repository.FieldProjection;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//roda a consulta paginada em todos os shards em paralelo e junta as páginas ordenadas
+@Component
+public class ScatterGather {
+
+    private final ObjectProvider<ShardRouter> router;
+
+    private final ExecutorService executor;
+
+    public ScatterGather(ObjectProvider<ShardRouter> router) {
+        this.router = router;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "scatter-gather-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //pedido com X-Branch: * e sharding ativo
+    public boolean isCrossBranch() {
+        return ShardContext.isAllBranches() && router.getIfAvailable() != null;
+    }
+
+    public <T> Page<T> find(Function<Pageable, Page<T>> query, Pageable pageable) {
+        Pageable shardPageable = pageable.isPaged()
+                ? PageRequest.of(0, (int) (pageable.getOffset() + pageable.getPageSize()), pageable.getSort())
+                : pageable;
+        List<CompletableFuture<Page<T>>> futures = router.getObject().getShards().stream()
+                .map(shard -> CompletableFuture.supplyAsync(
+                        () -> ShardContext.callOnShard(shard, () -> query.apply(shardPageable)), executor))
+                .collect(Collectors.toList());
+        List<Page<T>> pages = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+        long total = pages.stream().mapToLong(Page::getTotalElements).sum();
+        List<T> merged = merge(pages, comparator(pageable.getSort()));
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, total);
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, total);
+    }
+
+    //merge de k listas já ordenadas; sem ordenação as páginas são concatenadas na ordem dos shards
+    public static <T> List<T> merge(List<Page<T>> pages, Comparator<T> comparator) {
+        List<T> merged = new ArrayList<>();
+        if (comparator == null) {
+            pages.forEach(page -> merged.addAll(page.getContent()));
+            return merged;
+        }
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            int order = comparator.compare(pages.get(a[0]).getContent().get(a[1]), pages.get(b[0]).getContent().get(b[1]));
+            return order != 0 ? order : Integer.compare(a[0], b[0]);
+        });
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).hasContent()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> content = pages.get(head[0]).getContent();
+            merged.add(content.get(head[1]));
+            if (head[1] + 1 < content.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Comparator<T> comparator(Sort sort) {
+        if (sort.isUnsorted()) {
+            return null;
+        }
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<Comparable> direction = order.isDescending() ? Comparator.reverseOrder() : Comparator.naturalOrder();
+            Comparator<Comparable> values = order.getNullHandling() == Sort.NullHandling.NULLS_FIRST
+                    ? Comparator.nullsFirst(direction)
+                    : Comparator.nullsLast(direction);
+            Comparator<T> byProperty = (a, b) -> values.compare(
+                    (Comparable) property(a, order.getProperty()), (Comparable) property(b, order.getProperty()));
+            comparator = comparator.thenComparing(byProperty);
+        }
+        return comparator;
+    }
+
+    //linhas de sparse fieldsets chegam como Map; a propriedade "book.title" fica em {book: {title}}
+    private static Object property(Object bean, String property) {
+        if (bean instanceof FieldProjection.Row) {
+            return ((FieldProjection.Row) bean).getSortValue(property);
+        }
+        if (bean instanceof Map) {
+            Object value = bean;
+            for (String name : property.split("\\.")) {
+                value = value instanceof Map ? ((Map<?, ?>) value).get(name) : null;
+            }
+            return value;
+        }
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(bean);
+        return wrapper.getPropertyValue(property);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
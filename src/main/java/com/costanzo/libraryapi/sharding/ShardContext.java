@@ -0,0 +1,75 @@
+package com.costanzo.libraryapi.sharding;
+
+import java.util.function.Supplier;
+
+//filial (e opcionalmente o shard) da thread atual; "*" pede a busca em todas as filiais
+public final class ShardContext {
+
+    public static final String DEFAULT_BRANCH = "default";
+
+    public static final String ALL_BRANCHES = "*";
+
+    private static final ThreadLocal<String> BRANCH = new ThreadLocal<>();
+
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String getBranch() {
+        String branch = BRANCH.get();
+        return branch == null || ALL_BRANCHES.equals(branch) ? DEFAULT_BRANCH : branch;
+    }
+
+    public static boolean isAllBranches() {
+        return ALL_BRANCHES.equals(BRANCH.get());
+    }
+
+    public static void setBranch(String branch) {
+        BRANCH.set(branch);
+    }
+
+    //linhas sem filial (anteriores ao sharding) pertencem à filial padrão
+    public static String branchOf(String branch) {
+        return branch == null ? DEFAULT_BRANCH : branch;
+    }
+
+    public static String getShard() {
+        return SHARD.get();
+    }
+
+    //executa diretamente em um shard, independente da filial
+    public static <T> T callOnShard(String shard, Supplier<T> action) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    //executa como se a requisição fosse da filial informada
+    public static <T> T callOnBranch(String branch, Supplier<T> action) {
+        String previous = BRANCH.get();
+        BRANCH.set(branch);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                BRANCH.remove();
+            } else {
+                BRANCH.set(previous);
+            }
+        }
+    }
+
+    public static void clear() {
+        BRANCH.remove();
+        SHARD.remove();
+    }
+}
@@ -0,0 +1,50 @@
+package com.costanzo.libraryapi.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//filial para shard: pelo application.sharding.branches, senão por hash da filial
+public class ShardRouter {
+
+    //faixa de ids de cada shard: ids continuam únicos entre shards (caches são indexados por id)
+    public static final long ID_RANGE = 1L << 40;
+
+    private final List<String> shards;
+
+    private final Map<String, String> branches;
+
+    public ShardRouter(Collection<String> shards, Map<String, String> branches) {
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("At least one shard must be configured");
+        }
+        List<String> sorted = new ArrayList<>(shards);
+        Collections.sort(sorted);
+        branches.forEach((branch, shard) -> {
+            if (!sorted.contains(shard)) {
+                throw new IllegalStateException("Branch " + branch + " mapped to unknown shard " + shard);
+            }
+        });
+        this.shards = Collections.unmodifiableList(sorted);
+        this.branches = new HashMap<>(branches);
+    }
+
+    public String shardFor(String branch) {
+        String shard = branches.get(branch);
+        if (shard != null) {
+            return shard;
+        }
+        return shards.get(Math.floorMod(branch.hashCode(), shards.size()));
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public long firstId(String shard) {
+        return shards.indexOf(shard) * ID_RANGE + 1;
+    }
+}
@@ -0,0 +1,52 @@
+package com.costanzo.libraryapi.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+//conexões do shard da filial atual, ou do shard definido para o scatter-gather
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final ShardRouter router;
+
+    private final Map<String, HikariDataSource> shards;
+
+    private final Map<String, Counter> connections = new HashMap<>();
+
+    public ShardRoutingDataSource(ShardRouter router, Map<String, HikariDataSource> shards, MeterRegistry registry) {
+        this.router = router;
+        this.shards = shards;
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(router.shardFor(ShardContext.DEFAULT_BRANCH)));
+        for (String shard : shards.keySet()) {
+            connections.put(shard, Counter.builder("datasource.shard.connections")
+                    .description("Connections handed out per shard")
+                    .tag("shard", shard)
+                    .register(registry));
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.getShard();
+        if (shard == null) {
+            shard = router.shardFor(ShardContext.getBranch());
+        }
+        connections.get(shard).increment();
+        return shard;
+    }
+
+    public DataSource getShard(String shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,65 @@
+package com.costanzo.libraryapi.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+//só shards H2 locais: copia o schema do shard padrão e separa as faixas de ids de cada shard
+@Slf4j
+public class ShardSchemaInitializer {
+
+    private static final List<String> SEQUENCES = Arrays.asList("hibernate_sequence", "loan_seq");
+
+    private final ShardRouter router;
+
+    private final ShardRoutingDataSource dataSource;
+
+    public ShardSchemaInitializer(ShardRouter router, ShardRoutingDataSource dataSource) {
+        this.router = router;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void initialize() throws SQLException {
+        String defaultShard = router.shardFor(ShardContext.DEFAULT_BRANCH);
+        JdbcTemplate source = new JdbcTemplate(dataSource.getShard(defaultShard));
+        if (!isH2(source) || !hasTable(source, "BOOK")) {
+            return;
+        }
+        List<String> ddl = source.queryForList("SCRIPT NODATA", String.class);
+        ddl.removeIf(statement -> statement.startsWith("--"));
+        for (String shard : router.getShards()) {
+            JdbcTemplate target = new JdbcTemplate(dataSource.getShard(shard));
+            if (!hasTable(target, "BOOK")) {
+                ddl.forEach(target::execute);
+                log.info("schema copied from shard {} to shard {}", defaultShard, shard);
+            }
+            long firstId = router.firstId(shard);
+            for (String sequence : SEQUENCES) {
+                Long next = target.queryForObject("select next value for " + sequence, Long.class);
+                if (next != null && next < firstId) {
+                    target.execute("alter sequence " + sequence + " restart with " + firstId);
+                }
+            }
+        }
+    }
+
+    private static boolean isH2(JdbcTemplate jdbc) {
+        return Boolean.TRUE.equals(jdbc.execute((Connection connection) ->
+                "H2".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    private static boolean hasTable(JdbcTemplate jdbc, String table) {
+        return Boolean.TRUE.equals(jdbc.execute((Connection connection) -> {
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, table, null)) {
+                return tables.next();
+            }
+        }));
+    }
+}
@@ -0,0 +1,59 @@
+package com.costanzo.libraryapi.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//ativado com application.sharding.enabled=true (ver perfil "sharded"); não combina com o roteamento para réplica
+@Configuration
+@ConditionalOnProperty(value = "application.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        return new ShardRouter(properties.getShards().keySet(), properties.getBranches());
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(ShardingProperties properties, ShardRouter shardRouter,
+                                                         MeterRegistry registry) {
+        Map<String, HikariDataSource> shards = new LinkedHashMap<>();
+        properties.getShards().forEach((name, config) -> shards.put(name, pool(name, config, registry)));
+        return new ShardRoutingDataSource(shardRouter, shards, registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    //recebe o EntityManagerFactory só para rodar depois que o Hibernate gerou o schema
+    @Bean
+    public ShardSchemaInitializer shardSchemaInitializer(EntityManagerFactory entityManagerFactory,
+                                                         ShardRouter shardRouter,
+                                                         ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardSchemaInitializer(shardRouter, shardRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(String name, HikariConfig config, MeterRegistry registry) {
+        if (config.getPoolName() == null) {
+            config.setPoolName("shard-" + name);
+        }
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return new HikariDataSource(config);
+    }
+}
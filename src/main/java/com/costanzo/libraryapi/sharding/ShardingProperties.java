@@ -0,0 +1,22 @@
+package com.costanzo.libraryapi.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Data
+@ConfigurationProperties("application.sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    //nome do shard -> configuração do pool (jdbc-url, username, password, maximum-pool-size...)
+    private Map<String, HikariConfig> shards = new TreeMap<>();
+
+    //filial -> nome do shard; filiais não mapeadas são distribuídas por hash
+    private Map<String, String> branches = new HashMap<>();
+}
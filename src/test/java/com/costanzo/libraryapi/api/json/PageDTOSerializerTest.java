@@ -0,0 +1,62 @@
+package com.costanzo.libraryapi.api.json;
+
+import com.costanzo.libraryapi.api.dto.BookDTO;
+import com.costanzo.libraryapi.api.dto.LoanDTO;
+import com.costanzo.libraryapi.api.dto.PageDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageDTOSerializerTest {
+
+    ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new SimpleModule()
+                .addSerializer(new PageDTOSerializer())
+                .addSerializer(new BookDTOSerializer())
+                .addSerializer(new LoanDTOSerializer()));
+    }
+
+    @Test
+    @DisplayName("Deve serializar a página compacta com os mesmos campos de conteúdo")
+    public void serializeCompactPageTest() throws Exception {
+        BookDTO book = BookDTO.builder().id(1l).title("As aventuras").author("Fulano").isbn("123").build();
+        LoanDTO loan = LoanDTO.builder().id(10l).customer("Fulano").book(book).build();
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsBytes(
+                PageDTO.of(Arrays.asList(loan), PageRequest.of(0, 10), 1)));
+        JsonNode reflective = new ObjectMapper().readTree(new ObjectMapper().writeValueAsBytes(loan));
+
+        assertThat(json.get("content").get(0)).isEqualTo(reflective);
+        assertThat(json.get("number").asInt()).isEqualTo(0);
+        assertThat(json.get("size").asInt()).isEqualTo(10);
+        assertThat(json.get("totalElements").asLong()).isEqualTo(1);
+        assertThat(json.get("totalPages").asInt()).isEqualTo(1);
+        assertThat(json.has("pageable")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve gerar uma resposta menor que a do PageImpl")
+    public void smallerThanPageImplTest() throws Exception {
+        List<BookDTO> books = Arrays.asList(
+                BookDTO.builder().id(1l).title("As aventuras").author("Fulano").isbn("123").build(),
+                BookDTO.builder().id(2l).title("Outro livro").author("Ciclano").isbn("456").build());
+
+        byte[] compact = objectMapper.writeValueAsBytes(PageDTO.of(books, PageRequest.of(0, 20), 2));
+        byte[] pageImpl = new ObjectMapper().writeValueAsBytes(new PageImpl<>(books, PageRequest.of(0, 20), 2));
+
+        assertThat(compact.length).isLessThan(pageImpl.length / 2);
+    }
+}
@@ -3,9 +3,11 @@ package com.costanzo.libraryapi.api.resource;
 import com.costanzo.libraryapi.api.dto.BookDTO;
 import com.costanzo.libraryapi.exception.BusinessException;
 import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
 import com.costanzo.libraryapi.service.BookService;
 import com.costanzo.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -30,8 +32,12 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -53,6 +59,9 @@ public class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    HotKeyTracker hotKeyTracker;
+
 
 
     @Test
@@ -90,6 +99,31 @@ public class BookControllerTest {
 
 
 
+    @Test
+    @DisplayName("Deve criar um livro recebendo e devolvendo CBOR.")
+    public void createdBookCborTest() throws Exception{
+
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        Book savedBook = Book.builder().id(10l).author("Arthur").title("As aventuras").isbn("001").build();
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(savedBook);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API)
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(cbor.writeValueAsBytes(createNewBook()));
+
+        byte[] response = mvc
+                .perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BookDTO book = cbor.readValue(response, BookDTO.class);
+        assertThat(book.getId()).isEqualTo(10l);
+        assertThat(book.getTitle()).isEqualTo("As aventuras");
+    }
+
     @Test
     @DisplayName("Deve lançar erro de validação quando não houver dados suficientes para criação do livro.")
     public void createdInvalidBookTest() throws Exception{
@@ -163,6 +197,47 @@ public class BookControllerTest {
                 .andExpect(jsonPath("isbn").value(createNewBook().getIsbn()));
     }
 
+    @Test
+    @DisplayName("Deve obter vários livros por id e isbn com disponibilidade, na ordem do pedido")
+    public void getManyBooksTest() throws Exception{
+        Book loanedBook = Book.builder().id(1l).title("As aventuras").author("Arthur").isbn("001").build();
+        Book availableBook = Book.builder().id(2l).title("Minecraft").author("Mojang").isbn("002").build();
+        BDDMockito.given(service.getByIDs(Mockito.anyCollection())).willReturn(Arrays.asList(availableBook, loanedBook));
+        BDDMockito.given(service.getBooksByIsbns(Mockito.anyCollection())).willReturn(new ArrayList<>());
+        BDDMockito.given(loanService.getLoanedBookIds(Mockito.anyCollection())).willReturn(Collections.singleton(1l));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/multi?ids=1,3,2&isbns=999"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("[0].id").value(1))
+                .andExpect(jsonPath("[0].found").value(true))
+                .andExpect(jsonPath("[0].available").value(false))
+                .andExpect(jsonPath("[0].book.title").value("As aventuras"))
+                .andExpect(jsonPath("[1].id").value(3))
+                .andExpect(jsonPath("[1].found").value(false))
+                .andExpect(jsonPath("[2].id").value(2))
+                .andExpect(jsonPath("[2].available").value(true))
+                .andExpect(jsonPath("[3].isbn").value("999"))
+                .andExpect(jsonPath("[3].found").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao pedir vários livros sem informar ids nem isbns")
+    public void getManyBooksWithoutIdsTest() throws Exception{
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/multi"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Deve retornar Not Found ao passar o id de livro e não encontrar")
     public void bookNotFoundTest() throws Exception{
@@ -188,7 +263,7 @@ public class BookControllerTest {
     @DisplayName("deve deletar um livro")
     public void deleteBookTest() throws Exception{
         //cenario
-        BDDMockito.given(service.getByID(Mockito.anyLong())).willReturn(Optional.of(Book.builder().id(1l).build()));
+        BDDMockito.given(service.deleteById(Mockito.anyLong())).willReturn(true);
 
         //execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -203,7 +278,7 @@ public class BookControllerTest {
     @DisplayName("deve retornar resource not found quando não encontrar  o livro para deletar")
     public void deleteNotfoundBookTest() throws Exception{
         //cenario
-        BDDMockito.given(service.getByID(Mockito.anyLong())).willReturn(Optional.empty());
+        BDDMockito.given(service.deleteById(Mockito.anyLong())).willReturn(false);
 
         //execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -223,10 +298,8 @@ public class BookControllerTest {
         Book updatingBook = Book.builder().id(1l).title("minecraft").author("Mojang").isbn("321").build();
         String json = new ObjectMapper().writeValueAsString(updatingBook);
 
-        BDDMockito.given(service.getByID(id)).willReturn(Optional.of(updatingBook));
-
         Book updatedBook = Book.builder().id(1l).author("Arthur").title("As aventuras").isbn("321").build();
-        BDDMockito.given(service.update(updatingBook)).willReturn(updatedBook);
+        BDDMockito.given(service.updateById(Mockito.eq(id), Mockito.any(Book.class))).willReturn(Optional.of(updatedBook));
 
 
         //execução
@@ -250,7 +323,7 @@ public class BookControllerTest {
     public void updateInexistentBookTest() throws Exception{
         //cenario
         String json = new ObjectMapper().writeValueAsString(createNewBook());
-        BDDMockito.given(service.getByID(Mockito.anyLong())).willReturn(Optional.empty());
+        BDDMockito.given(service.updateById(Mockito.anyLong(), Mockito.any(Book.class))).willReturn(Optional.empty());
 
         //execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -291,10 +364,45 @@ public class BookControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(100))
+                .andExpect(jsonPath("number").value(0));
+
+
+    }
 
+    @Test
+    @DisplayName("Deve filtrar livros retornando apenas os campos pedidos")
+    public void findBookFieldsTest() throws Exception{
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 1l);
+        row.put("title", "As aventuras");
+        BDDMockito.given(service.findFields(Mockito.any(Book.class), Mockito.eq(Arrays.asList("id", "title")), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(row), PageRequest.of(0,100),1));
 
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Artur&fields=id,title&page=0&size=100"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(1))
+                .andExpect(jsonPath("content[0].title").value("As aventuras"))
+                .andExpect(jsonPath("content[0].author").doesNotExist())
+                .andExpect(jsonPath("totalElements").value(1));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao pedir um campo inexistente")
+    public void findBookUnknownFieldTest() throws Exception{
+        BDDMockito.given(service.findFields(Mockito.any(Book.class), Mockito.anyList(), Mockito.any(Pageable.class)))
+                .willThrow(new BusinessException("Unknown field: price"));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?fields=price")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Unknown field: price"));
     }
 
     private BookDTO createNewBook() {
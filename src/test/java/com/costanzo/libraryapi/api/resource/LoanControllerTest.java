@@ -1,12 +1,15 @@
 package com.costanzo.libraryapi.api.resource;
 
 
+import com.costanzo.libraryapi.api.dto.BatchLoanDTO;
 import com.costanzo.libraryapi.api.dto.LoanDTO;
 import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.api.dto.ReturnLoansDTO;
 import com.costanzo.libraryapi.api.dto.ReturnedLoanDTO;
 import com.costanzo.libraryapi.exception.BusinessException;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
 import com.costanzo.libraryapi.service.BookService;
 import com.costanzo.libraryapi.service.LoanService;
 import com.costanzo.libraryapi.service.LoanServiceTest;
@@ -53,6 +56,8 @@ public class LoanControllerTest {
     private BookService bookservice;
     @MockBean
     private LoanService loanService;
+    @MockBean
+    private HotKeyTracker hotKeyTracker;
 
     @Test
     @DisplayName("Deve realizar um emprestimo")
@@ -126,13 +131,44 @@ public class LoanControllerTest {
     }
 
 
+    @Test
+    @DisplayName("Deve realizar vários empréstimos em lote com resultado por isbn")
+    public void createBatchLoanTest() throws Exception{
+        BatchLoanDTO dto = BatchLoanDTO.builder()
+                .customer("Fulano")
+                .email("customer@email.com")
+                .isbns(Arrays.asList("123", "456", "789"))
+                .build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        Book book = Book.builder().id(1l).isbn("123").build();
+        Book loanedBook = Book.builder().id(2l).isbn("456").build();
+        BDDMockito.given(bookservice.getBooksByIsbns(Mockito.anyCollection())).willReturn(Arrays.asList(book, loanedBook));
+
+        Loan loan = Loan.builder().id(10l).customer("Fulano").book(book).loanDate(LocalDate.now()).build();
+        BDDMockito.given(loanService.saveAllAvailable(Mockito.anyList())).willReturn(Arrays.asList(loan));
+
+        MockHttpServletRequestBuilder request = post(LOAN_API.concat("/batch"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(3)))
+                .andExpect(jsonPath("[0].isbn").value("123"))
+                .andExpect(jsonPath("[0].loanId").value(10))
+                .andExpect(jsonPath("[0].status").value("CREATED"))
+                .andExpect(jsonPath("[1].status").value("ALREADY_LOANED"))
+                .andExpect(jsonPath("[2].status").value("BOOK_NOT_FOUND"));
+    }
+
     @Test
     @DisplayName("Deve retornar um livro")
     public void returnBookTest() throws Exception{
         //cenario
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
-        Loan loan = Loan.builder().id(1l).build();
-        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.updateReturned(1l, true)).willReturn(true);
         String json = new ObjectMapper().writeValueAsString(dto);
 
         mvc
@@ -143,7 +179,7 @@ public class LoanControllerTest {
                         .content(json)
                 ).andExpect(status().isOk());
 
-        Mockito.verify(loanService, Mockito.times(1)).update(loan);
+        Mockito.verify(loanService, Mockito.times(1)).updateReturned(1l, true);
 
     }
 
@@ -153,7 +189,7 @@ public class LoanControllerTest {
         //cenario
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
 
-        BDDMockito.given(loanService.getById(Mockito.anyLong())).willReturn(Optional.empty());
+        BDDMockito.given(loanService.updateReturned(Mockito.anyLong(), Mockito.anyBoolean())).willReturn(false);
         String json = new ObjectMapper().writeValueAsString(dto);
 
         mvc
@@ -167,6 +203,43 @@ public class LoanControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve devolver vários empréstimos por id e por isbn")
+    public void returnBooksTest() throws Exception{
+        ReturnLoansDTO dto = ReturnLoansDTO.builder()
+                .ids(Arrays.asList(1l, 2l))
+                .isbns(Arrays.asList("123"))
+                .build();
+        BDDMockito.given(loanService.returnLoans(dto.getIds(), dto.getIsbns())).willReturn(3);
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        mvc
+                .perform(
+                        post(LOAN_API.concat("/returns"))
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(json)
+                ).andExpect(status().isOk())
+                .andExpect(content().string("3"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao devolver vários empréstimos sem ids nem isbns")
+    public void returnBooksWithoutIdsTest() throws Exception{
+        String json = new ObjectMapper().writeValueAsString(new ReturnLoansDTO());
+
+        mvc
+                .perform(
+                        post(LOAN_API.concat("/returns"))
+                                .accept(MediaType.APPLICATION_JSON)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(json)
+                ).andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Loan ids or isbns must be informed"));
+
+        Mockito.verify(loanService, Mockito.never()).returnLoans(Mockito.any(), Mockito.any());
+    }
+
     @Test
     @DisplayName("Deve filtrar empréstimos")
     public void findLoanTest() throws Exception{
@@ -192,8 +265,8 @@ public class LoanControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(10))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(10))
+                .andExpect(jsonPath("number").value(0));
 
 
     }
@@ -0,0 +1,122 @@
+package com.costanzo.libraryapi.archive;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.repository.LoanArchiveSegmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LoanArchiveTest {
+
+    @Autowired
+    LoanArchiveSegmentRepository segmentRepository;
+
+    LoanArchiveSegmentRepository repository;
+
+    LoanArchive archive;
+
+    @BeforeEach
+    public void setUp() {
+        segmentRepository.deleteAll();
+        repository = mock(LoanArchiveSegmentRepository.class, delegatesTo(segmentRepository));
+        archive = new LoanArchive(repository, 100);
+    }
+
+    @Test
+    @DisplayName("Deve arquivar empréstimos no banco e buscá-los pelo livro")
+    public void writeAndFindTest() {
+        Book book = Book.builder().id(1l).build();
+        Book otherBook = Book.builder().id(2l).build();
+        Loan loan = createLoan(10l, book, LocalDate.now().minusYears(2));
+        Loan otherLoan = createLoan(11l, otherBook, LocalDate.now().minusYears(2));
+
+        archive.write(Arrays.asList(loan, otherLoan));
+        List<Loan> found = archive.findByBookId(1l);
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getId()).isEqualTo(10l);
+        assertThat(found.get(0).getCustomer()).isEqualTo("Fulano");
+        assertThat(found.get(0).getCustomerEmail()).isNull();
+        assertThat(found.get(0).getLoanDate()).isEqualTo(loan.getLoanDate());
+        assertThat(found.get(0).getReturned()).isTrue();
+        assertThat(archive.findByBookId(3l)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve guardar o histórico arquivado do livro até um novo segmento com o livro ser gravado")
+    public void historyCacheTest() {
+        Book book = Book.builder().id(1l).build();
+        archive.write(Collections.singletonList(createLoan(10l, book, LocalDate.now().minusYears(3))));
+
+        archive.findByBookId(1l).get(0).setCustomer("Alterado");
+        List<Loan> cached = archive.findByBookId(1l);
+        archive.write(Collections.singletonList(createLoan(12l, book, LocalDate.now().minusYears(2))));
+        List<Loan> reloaded = archive.findByBookId(1l);
+
+        assertThat(cached).extracting(Loan::getCustomer).containsExactly("Fulano");
+        assertThat(reloaded).extracting(Loan::getId).containsExactly(12l, 10l);
+        verify(repository, times(2)).findAllById(anyIterable());
+    }
+
+    @Test
+    @DisplayName("Deve ver os segmentos gravados por outra instância")
+    public void segmentsFromOtherInstanceTest() {
+        Book book = Book.builder().id(1l).build();
+        LoanArchive otherInstance = new LoanArchive(segmentRepository, 100);
+        otherInstance.write(Collections.singletonList(createLoan(10l, book, LocalDate.now().minusYears(3))));
+
+        List<Loan> first = archive.findByBookId(1l);
+        otherInstance.write(Collections.singletonList(createLoan(12l, book, LocalDate.now().minusYears(2))));
+        List<Loan> second = archive.findByBookId(1l);
+
+        assertThat(first).extracting(Loan::getId).containsExactly(10l);
+        assertThat(second).extracting(Loan::getId).containsExactly(12l, 10l);
+    }
+
+    @Test
+    @DisplayName("Deve copiar só a página pedida do histórico arquivado, na ordem pedida")
+    public void findPageTest() {
+        Book book = Book.builder().id(1l).build();
+        archive.write(Arrays.asList(
+                createLoan(10l, book, LocalDate.now().minusYears(4)),
+                createLoan(11l, book, LocalDate.now().minusYears(2)),
+                createLoan(12l, book, LocalDate.now().minusYears(3))));
+
+        Page<Loan> newest = archive.findByBookId(1l, null, 1, 1);
+        Page<Loan> oldest = archive.findByBookId(1l, Comparator.comparing(Loan::getLoanDate), 0, 2);
+
+        assertThat(newest.getTotalElements()).isEqualTo(3);
+        assertThat(newest.getContent()).extracting(Loan::getId).containsExactly(12l);
+        assertThat(oldest.getContent()).extracting(Loan::getId).containsExactly(10l, 12l);
+    }
+
+    private Loan createLoan(Long id, Book book, LocalDate loanDate) {
+        return Loan.builder().id(id).book(book).customer("Fulano").loanDate(loanDate).returned(true).build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookCacheTest {
+
+    @Test
+    @DisplayName("Não deve guardar um livro lido antes de um evict nem uma versão mais antiga")
+    public void stalePutTest() {
+        BookCache cache = new BookCache(100);
+        Book book = Book.builder().id(1l).version(1l).isbn("123").title("As aventuras").build();
+
+        long beforeDelete = cache.generation();
+        cache.evict(1l);
+        cache.put(book, beforeDelete);
+        boolean deletedStored = cache.get(1l).isPresent();
+
+        cache.put(Book.builder().id(1l).version(2l).isbn("123").title("Novo título").build(), cache.generation());
+        cache.put(book, cache.generation());
+
+        assertThat(deletedStored).isFalse();
+        assertThat(cache.get(1l)).hasValueSatisfying(cached -> {
+            assertThat(cached.getVersion()).isEqualTo(2l);
+            assertThat(cached.getTitle()).isEqualTo("Novo título");
+        });
+    }
+
+    @Test
+    @DisplayName("Deve trocar o livro pelo lido na escrita e descartar cargas anteriores")
+    public void refreshTest() {
+        BookCache cache = new BookCache(100);
+        cache.put(Book.builder().id(1l).version(1l).isbn("123").title("As aventuras").build(), cache.generation());
+
+        long beforeRefresh = cache.generation();
+        cache.refresh(Book.builder().id(1l).version(2l).isbn("123").title("Novo título").build());
+        cache.put(Book.builder().id(1l).version(2l).isbn("123").title("Lido da réplica").build(), beforeRefresh);
+
+        assertThat(cache.get(1l)).hasValueSatisfying(cached -> assertThat(cached.getTitle()).isEqualTo("Novo título"));
+    }
+
+    @Test
+    @DisplayName("Não deve passar do limite de entradas")
+    public void maxEntriesTest() {
+        BookCache cache = new BookCache(2);
+
+        for (long id = 1; id <= 5; id++) {
+            cache.put(Book.builder().id(id).version(1l).isbn("isbn" + id).build(), cache.generation());
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(5l)).isPresent();
+        assertThat(cache.getIdByIsbn(null, "isbn5")).hasValue(5l);
+    }
+}
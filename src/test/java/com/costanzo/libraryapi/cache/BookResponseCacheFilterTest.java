@@ -0,0 +1,110 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookResponseCacheFilterTest {
+
+    HotKeyTracker hotKeys;
+    BookResponseCache cache;
+    BookResponseCacheFilter filter;
+    AtomicInteger rendered;
+    FilterChain controller;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hotKeys = new HotKeyTracker(true, 4, 256, 2);
+        cache = new BookResponseCache(3, hotKeys, registry);
+        filter = new BookResponseCacheFilter(cache, hotKeys, registry);
+        rendered = new AtomicInteger();
+        controller = (request, response) -> {
+            rendered.incrementAndGet();
+            response.setContentType("application/json");
+            response.getOutputStream().write(("{\"id\":1,\"title\":\"v" + rendered.get() + "\"}").getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    @Test
+    @DisplayName("Deve servir o livro dos bytes em cache até ele ser alterado")
+    public void serveFromCacheUntilEvictedTest() throws Exception {
+        MockHttpServletResponse first = get("/api/books/1", null);
+        MockHttpServletResponse second = get("/api/books/1", null);
+        cache.evict(1l);
+        MockHttpServletResponse third = get("/api/books/1", null);
+
+        assertThat(rendered.get()).isEqualTo(2);
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString()).contains("v1");
+        assertThat(second.getContentType()).isEqualTo("application/json");
+        assertThat(second.getHeader("ETag")).isEqualTo(first.getHeader("ETag")).isNotNull();
+        assertThat(third.getContentAsString()).contains("v2");
+        assertThat(third.getHeader("ETag")).isNotEqualTo(first.getHeader("ETag"));
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 quando o ETag informado for o do cache")
+    public void notModifiedTest() throws Exception {
+        String etag = get("/api/books/1", null).getHeader("ETag");
+
+        MockHttpServletResponse response = get("/api/books/1", etag);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(rendered.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Não deve guardar respostas de erro nem de outras rotas")
+    public void ignoreErrorsAndOtherPathsTest() throws Exception {
+        FilterChain notFound = (request, response) -> {
+            rendered.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(404);
+        };
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books/2"), new MockHttpServletResponse(), notFound);
+        get("/api/books/1/loans", null);
+
+        assertThat(cache.size()).isZero();
+        assertThat(rendered.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve manter em cache os livros mais lidos quando precisar de espaço")
+    public void pinHotBooksTest() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            hotKeys.record(HotKeyTracker.Stream.BOOK, 1l);
+        }
+        get("/api/books/1", null);
+        for (long id = 2; id <= 10; id++) {
+            get("/api/books/" + id, null);
+        }
+        int rendered = this.rendered.get();
+
+        get("/api/books/1", null);
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(this.rendered.get()).isEqualTo(rendered);
+        assertThat(hotKeys.isHot(HotKeyTracker.Stream.BOOK, 1l)).isTrue();
+    }
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+}
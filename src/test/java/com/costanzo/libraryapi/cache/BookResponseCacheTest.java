@@ -0,0 +1,27 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookResponseCacheTest {
+
+    @Test
+    @DisplayName("Deve remover todas as variantes do livro alterado e só as dele")
+    public void evictVariantsTest() {
+        BookResponseCache cache = new BookResponseCache(10, new HotKeyTracker(true, 4, 256, 2), new SimpleMeterRegistry());
+        cache.put(1l, null, "application/json", "application/json", new byte[]{1}, cache.generation());
+        cache.put(1l, "centro", "application/cbor", "application/cbor", new byte[]{2}, cache.generation());
+        cache.put(2l, null, "application/json", "application/json", new byte[]{3}, cache.generation());
+
+        cache.evict(1l);
+
+        assertThat(cache.get(1l, null, "application/json")).isNull();
+        assertThat(cache.get(1l, "centro", "application/cbor")).isNull();
+        assertThat(cache.get(2l, null, "application/json")).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
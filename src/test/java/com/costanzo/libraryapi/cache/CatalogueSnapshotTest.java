@@ -0,0 +1,50 @@
+package com.costanzo.libraryapi.cache;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CatalogueSnapshotTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    @DisplayName("Deve gravar e ler o snapshot do catálogo")
+    public void writeAndReadTest() throws Exception {
+        Path file = folder.resolve("catalogue.snapshot");
+        LocalDateTime watermark = LocalDateTime.of(2021, 7, 1, 10, 30, 15, 123);
+        Book book = Book.builder().id(1l).version(3l).isbn("123").title("As aventuras").author("Fulano").build();
+        Book bookWithoutAuthor = Book.builder().id(2l).version(0l).isbn("456").title("Ação & reação").build();
+
+        CatalogueSnapshot.write(file, watermark, Arrays.asList(book, bookWithoutAuthor));
+        CatalogueSnapshot snapshot = CatalogueSnapshot.read(file);
+
+        assertThat(snapshot.getWatermark()).isEqualTo(watermark);
+        assertThat(snapshot.getBooks()).hasSize(2);
+        assertThat(snapshot.getBooks().get(0)).isEqualTo(book);
+        assertThat(snapshot.getBooks().get(1).getTitle()).isEqualTo("Ação & reação");
+        assertThat(snapshot.getBooks().get(1).getAuthor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve recusar um arquivo que não é um snapshot")
+    public void readInvalidFileTest() throws Exception {
+        Path file = folder.resolve("invalid.snapshot");
+        Files.write(file, "not a snapshot at all".getBytes());
+
+        Throwable exception = catchThrowable(() -> CatalogueSnapshot.read(file));
+
+        assertThat(exception).isInstanceOf(IOException.class);
+    }
+}
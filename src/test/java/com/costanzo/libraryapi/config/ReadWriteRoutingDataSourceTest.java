@@ -0,0 +1,72 @@
+package com.costanzo.libraryapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    SimpleMeterRegistry registry;
+    DriverManagerDataSource replica;
+    ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        replica = new DriverManagerDataSource("jdbc:h2:mem:replica-test;DB_CLOSE_DELAY=-1", "sa", "");
+        routingDataSource = new ReadWriteRoutingDataSource(new DriverManagerDataSource(), replica, registry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Deve enviar transações somente leitura para a réplica")
+    public void readOnlyToReplicaTest() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Target.REPLICA);
+        assertThat(registry.get("datasource.routing.connections").tag("target", "replica").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve enviar escritas para o primário")
+    public void writeToPrimaryTest() {
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Target.PRIMARY);
+        assertThat(registry.get("datasource.routing.connections").tag("target", "primary").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve enviar leituras para o primário quando a réplica estiver atrasada")
+    public void laggingReplicaTest() {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(routingDataSource, replica, "select 30", Duration.ofSeconds(10), registry);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        monitor.check();
+
+        assertThat(routingDataSource.isReplicaAvailable()).isFalse();
+        assertThat(routingDataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Target.PRIMARY);
+        assertThat(registry.get("datasource.replica.lag").gauge().value()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("Deve voltar a ler da réplica quando o atraso estiver dentro da tolerância")
+    public void replicaBackInSyncTest() {
+        routingDataSource.setReplicaAvailable(false);
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(routingDataSource, replica, "select 2", Duration.ofSeconds(10), registry);
+
+        monitor.check();
+
+        assertThat(routingDataSource.isReplicaAvailable()).isTrue();
+    }
+}
@@ -0,0 +1,147 @@
+package com.costanzo.libraryapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkloadRoutingDataSourceTest {
+
+    private static final String URL = "jdbc:h2:mem:bulkheads;DB_CLOSE_DELAY=-1";
+
+    SimpleMeterRegistry registry;
+    HikariDataSource write;
+    HikariDataSource read;
+    HikariDataSource batch;
+    DataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        write = pool("write", 2, 5000);
+        read = pool("read", 2, 5000);
+        batch = pool("batch", 1, 1000);
+        WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource(write, read, batch);
+        routing.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        Arrays.asList(write, read, batch).forEach(HikariDataSource::close);
+    }
+
+    @Test
+    @DisplayName("Deve separar as conexões de escrita, leitura e jobs em pools diferentes")
+    public void routeByWorkloadTest() throws Exception {
+        assertThat(poolOf(dataSource)).isEqualTo("write");
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(poolOf(dataSource)).isEqualTo("read");
+
+        try (WorkloadContext.Scope scope = WorkloadContext.batch()) {
+            assertThat(poolOf(dataSource)).isEqualTo("batch");
+        }
+    }
+
+    @Test
+    @DisplayName("Deve manter a latência das escritas com o pool de jobs saturado")
+    public void saturatedBatchPoolTest() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        //o job segura a única conexão do seu pool e um segundo job fica esperando por ela
+        CompletableFuture<Void> job = CompletableFuture.runAsync(() -> runAsBatch(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                execute(connection);
+                holding.countDown();
+                release.await();
+            }
+            return null;
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Throwable> waitingJob = CompletableFuture.supplyAsync(() -> runAsBatch(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                execute(connection);
+                return null;
+            } catch (SQLTransientConnectionException e) {
+                return e;
+            }
+        }));
+
+        long[] latencies = new long[200];
+        for (int i = 0; i < latencies.length; i++) {
+            long start = System.nanoTime();
+            try (Connection connection = dataSource.getConnection()) {
+                execute(connection);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        long p99 = TimeUnit.NANOSECONDS.toMillis(latencies[(int) (latencies.length * 0.99) - 1]);
+
+        assertThat(waitingJob.get(5, TimeUnit.SECONDS)).isInstanceOf(SQLTransientConnectionException.class);
+        release.countDown();
+        job.get(5, TimeUnit.SECONDS);
+
+        //bem abaixo do connection-timeout do pool de jobs, que seria o tempo de espera sem bulkhead
+        assertThat(p99).isLessThan(250);
+        assertThat(registry.get("hikaricp.connections.timeout").tag("pool", "batch").counter().count()).isEqualTo(1);
+        assertThat(registry.get("hikaricp.connections.timeout").tag("pool", "write").counter().count()).isZero();
+    }
+
+    private HikariDataSource pool(String name, int size, long connectionTimeout) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(URL);
+        config.setUsername("sa");
+        config.setPoolName(name);
+        config.setMaximumPoolSize(size);
+        config.setConnectionTimeout(connectionTimeout);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return new HikariDataSource(config);
+    }
+
+    private String poolOf(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            execute(connection);
+            for (HikariDataSource pool : Arrays.asList(write, read, batch)) {
+                if (pool.getHikariPoolMXBean().getActiveConnections() > 0) {
+                    return pool.getPoolName();
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void execute(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("select 1");
+        }
+    }
+
+    private static <T> T runAsBatch(Callable<T> action) {
+        try (WorkloadContext.Scope scope = WorkloadContext.batch()) {
+            return action.call();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
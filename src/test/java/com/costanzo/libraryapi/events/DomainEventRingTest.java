@@ -0,0 +1,157 @@
+package com.costanzo.libraryapi.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DomainEventRingTest {
+
+    static final int PRODUCERS = 4;
+    static final int EVENTS_PER_PRODUCER = 20_000;
+
+    @Test
+    @DisplayName("Deve entregar todos os eventos a cada consumidor, na ordem de cada publicador, com um anel pequeno")
+    public void deliverToEveryConsumerTest() throws Exception {
+        Recording blocking = new Recording(WaitStrategy.BLOCKING);
+        Recording yielding = new Recording(WaitStrategy.YIELDING);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DomainEventRing ring = new DomainEventRing(64, Arrays.asList(blocking, yielding), WaitStrategy.SLEEPING, registry);
+        ring.start();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            long producer = p;
+            producers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    //anel cheio descarta: o teste tenta de novo para conferir a entrega de todos
+                    while (!ring.publish(DomainEvent.Type.LOAN_CREATED, producer * EVENTS_PER_PRODUCER + i, producer, null)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> producer : producers) {
+            producer.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        ring.stop(Duration.ofSeconds(10));
+
+        for (Recording consumer : Arrays.asList(blocking, yielding)) {
+            assertThat(consumer.received).isEqualTo(PRODUCERS * EVENTS_PER_PRODUCER);
+            assertThat(consumer.outOfOrder).isFalse();
+            assertThat(consumer.lastSequence).isEqualTo(ring.getCursor());
+            assertThat(consumer.endOfBatch).isTrue();
+        }
+        assertThat(ring.getBacklog()).isZero();
+        assertThat(registry.get("domain.events.batch.size").summary().totalAmount())
+                .isEqualTo(2.0 * PRODUCERS * EVENTS_PER_PRODUCER);
+    }
+
+    @Test
+    @DisplayName("Deve descartar o evento sem bloquear quando o anel está cheio")
+    public void dropWhenFullTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> ids = new ArrayList<>();
+        DomainEventConsumer consumer = (event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ids.add(event.getId());
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DomainEventRing ring = new DomainEventRing(4, Arrays.asList(consumer), WaitStrategy.SLEEPING, registry);
+        ring.start();
+
+        for (long id = 1; id <= 4; id++) {
+            assertThat(ring.publish(DomainEvent.Type.BOOK_UPDATED, id, id, null)).isTrue();
+        }
+        assertThat(ring.publish(DomainEvent.Type.BOOK_UPDATED, 5l, 5l, null)).isFalse();
+        assertThat(ring.publish(DomainEvent.Type.BOOK_UPDATED, 6l, 6l, null)).isFalse();
+        assertThat(ring.getCursor()).isEqualTo(3);
+
+        release.countDown();
+        ring.stop(Duration.ofSeconds(10));
+
+        assertThat(ids).containsExactly(1l, 2l, 3l, 4l);
+        assertThat(registry.get("domain.events.dropped").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve continuar consumindo depois de um erro em um evento")
+    public void consumerFailureTest() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        DomainEventConsumer consumer = (event, sequence, endOfBatch) -> {
+            if (event.getId() == 2) {
+                throw new IllegalStateException("falha no consumidor");
+            }
+            ids.add(event.getId());
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DomainEventRing ring = new DomainEventRing(32, Arrays.asList(consumer), WaitStrategy.SLEEPING, registry);
+        ring.start();
+
+        for (long id = 1; id <= 20; id++) {
+            ring.publish(DomainEvent.Type.BOOK_UPDATED, id, id, null);
+        }
+        ring.stop(Duration.ofSeconds(10));
+
+        assertThat(ids).hasSize(19).doesNotContain(2l).startsWith(1l, 3l).endsWith(20l);
+        assertThat(registry.get("domain.events.consumer.failures").counter().count()).isEqualTo(1);
+        assertThat(ring.publish(DomainEvent.Type.BOOK_UPDATED, 21l, 21l, null)).isFalse();
+    }
+
+    //só a thread do consumidor escreve; os campos são lidos depois do stop (join)
+    static class Recording implements DomainEventConsumer {
+
+        private final WaitStrategy strategy;
+
+        private final long[] lastByProducer = new long[PRODUCERS];
+
+        int received;
+
+        long lastSequence = -1;
+
+        boolean outOfOrder;
+
+        boolean endOfBatch;
+
+        Recording(WaitStrategy strategy) {
+            this.strategy = strategy;
+            Arrays.fill(lastByProducer, -1);
+        }
+
+        @Override
+        public void onEvent(DomainEvent event, long sequence, boolean endOfBatch) {
+            int producer = event.getBookId().intValue();
+            outOfOrder |= event.getId() <= lastByProducer[producer] || sequence != lastSequence + 1;
+            lastByProducer[producer] = event.getId();
+            lastSequence = sequence;
+            this.endOfBatch = endOfBatch;
+            received++;
+        }
+
+        @Override
+        public WaitStrategy waitStrategy() {
+            return strategy;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.costanzo.libraryapi.invalidation;
+
+import com.costanzo.libraryapi.model.repository.CacheInvalidationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InvalidationBusTest {
+
+    @Autowired
+    CacheInvalidationRepository repository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    JdbcInvalidationTransport transportA;
+    JdbcInvalidationTransport transportB;
+    InvalidationBus busA;
+    InvalidationBus busB;
+    List<InvalidationEvent> appliedOnA;
+    List<InvalidationEvent> appliedOnB;
+    SimpleMeterRegistry registryB;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        appliedOnA = Collections.synchronizedList(new ArrayList<>());
+        appliedOnB = Collections.synchronizedList(new ArrayList<>());
+        registryB = new SimpleMeterRegistry();
+        transportA = new JdbcInvalidationTransport(repository, transactionManager, 2, 10, Duration.ofHours(1));
+        transportB = new JdbcInvalidationTransport(repository, transactionManager, 2, 10, Duration.ofHours(1));
+        busA = bus(transportA, appliedOnA::add, new SimpleMeterRegistry());
+        busB = bus(transportB, appliedOnB::add, registryB);
+        transportA.poll();
+        transportB.poll();
+    }
+
+    @Test
+    @DisplayName("Deve aplicar nas outras instâncias as alterações publicadas, uma única vez")
+    public void propagateToOtherInstancesTest() {
+        busA.publishBook(1l);
+        busA.publishLoan(2l);
+        busA.publishLoan(null);
+        busA.publishLoans(Arrays.asList(5l, 6l, 7l));
+        busB.publishBook(3l);
+
+        transportA.poll();
+        transportB.poll();
+        transportB.poll();
+
+        assertThat(appliedOnB).extracting(InvalidationEvent::getType, InvalidationEvent::getIds).containsExactly(
+                tuple(InvalidationEvent.Type.BOOK, Arrays.asList(1l)),
+                tuple(InvalidationEvent.Type.LOAN, Arrays.asList(2l)),
+                tuple(InvalidationEvent.Type.LOAN, null),
+                tuple(InvalidationEvent.Type.LOAN, Arrays.asList(5l, 6l, 7l)));
+        assertThat(appliedOnA).extracting(InvalidationEvent::getIds).containsExactly(Arrays.asList(3l));
+        assertThat(registryB.get("cache.invalidation.received").counter().count()).isEqualTo(4);
+        assertThat(registryB.get("cache.invalidation.propagation").timer().count()).isEqualTo(4);
+        assertThat(registryB.get("cache.invalidation.propagation").timer().max(TimeUnit.SECONDS)).isLessThan(5);
+    }
+
+    @Test
+    @DisplayName("Não deve entregar eventos publicados antes da subida da instância")
+    public void skipEventsBeforeStartTest() {
+        busA.publishBook(1l);
+        List<InvalidationEvent> appliedOnC = new ArrayList<>();
+        JdbcInvalidationTransport transportC = new JdbcInvalidationTransport(repository, transactionManager, 2, 10, Duration.ofHours(1));
+        bus(transportC, appliedOnC::add, new SimpleMeterRegistry());
+
+        transportC.poll();
+        busA.publishBook(4l);
+        transportC.poll();
+
+        assertThat(appliedOnC).extracting(InvalidationEvent::getIds).containsExactly(Arrays.asList(4l));
+    }
+
+    private static InvalidationBus bus(InvalidationTransport transport, InvalidationListener listener,
+                                       SimpleMeterRegistry registry) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("transport", transport);
+        InvalidationBus bus = new InvalidationBus(beanFactory.getBeanProvider(InvalidationTransport.class),
+                Collections.singletonList(listener), registry);
+        bus.start();
+        return bus;
+    }
+}
@@ -0,0 +1,36 @@
+package com.costanzo.libraryapi.limiter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimiterTest {
+
+    static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    @DisplayName("Deve reduzir o limite uma vez só quando um pico deixar várias requisições lentas")
+    public void backoffOncePerSpikeTest() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("read", 20, 2, 40, Duration.ofMillis(100), 0.9);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+        }
+
+        long now = TimeUnit.SECONDS.toNanos(10);
+        for (int i = 0; i < 20; i++) {
+            limiter.release(SLOW, now + i);
+        }
+        int afterSpike = limiter.getLimit();
+
+        //começou depois da redução: um novo pico reduz de novo
+        limiter.tryAcquire();
+        limiter.release(SLOW, now + SLOW + 100);
+
+        assertThat(afterSpike).isEqualTo(18);
+        assertThat(limiter.getLimit()).isEqualTo(16);
+    }
+}
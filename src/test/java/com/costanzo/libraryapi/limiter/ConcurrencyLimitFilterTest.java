@@ -0,0 +1,79 @@
+package com.costanzo.libraryapi.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    SimpleMeterRegistry registry;
+    AdaptiveLimiter read;
+    AdaptiveLimiter write;
+    ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        read = new AdaptiveLimiter("read", 4, 2, 8, Duration.ofMillis(100), 0.5);
+        write = new AdaptiveLimiter("write", 1, 1, 4, Duration.ofMillis(100), 0.5);
+        filter = new ConcurrencyLimitFilter(read, write, Duration.ofSeconds(2), new ObjectMapper(), registry);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar com 503 e Retry-After o que passar do limite de escrita")
+    public void rejectAboveLimitTest() throws Exception {
+        write.tryAcquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/loans"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(response.getContentAsString()).contains("Too many concurrent requests");
+        assertThat(write.getRejected()).isEqualTo(1);
+        assertThat(registry.get("api.concurrency.rejected").tag("limiter", "write").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve limitar leituras e escritas separadamente")
+    public void separateLimitsTest() throws Exception {
+        write.tryAcquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/books"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(read.getInflight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve reduzir o limite quando a latência passar do limiar")
+    public void backoffOnSlowRequestsTest() {
+        read.tryAcquire();
+        read.release(TimeUnit.MILLISECONDS.toNanos(500));
+        read.tryAcquire();
+        read.release(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertThat(read.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve aumentar o limite com requisições rápidas e o limite em uso")
+    public void increaseOnFastRequestsTest() {
+        read.tryAcquire();
+        read.tryAcquire();
+        read.release(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertThat(read.getLimit()).isEqualTo(5);
+    }
+}
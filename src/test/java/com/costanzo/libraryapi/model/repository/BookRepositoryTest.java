@@ -15,6 +15,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import javax.persistence.EntityManager;
 import javax.swing.text.html.Option;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -101,4 +102,31 @@ public class BookRepositoryTest {
 
     }
 
+    @Test
+    @DisplayName("Deve atualizar título e autor com um único comando")
+    public void updateTitleAndAuthorTest(){
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+        Long version = book.getVersion();
+
+        int updated = repository.updateTitleAndAuthor(book.getId(), "Novo título", "Ciclano", LocalDateTime.now());
+        entityManager.clear();
+
+        Book updatedBook = entityManager.find(Book.class, book.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(updatedBook.getTitle()).isEqualTo("Novo título");
+        assertThat(updatedBook.getAuthor()).isEqualTo("Ciclano");
+        assertThat(updatedBook.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Deve retornar zero ao deletar um livro inexistente")
+    public void deleteBookByIdNotFoundTest(){
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+
+        assertThat(repository.deleteBookById(book.getId())).isEqualTo(1);
+        assertThat(repository.deleteBookById(book.getId())).isZero();
+    }
+
 }
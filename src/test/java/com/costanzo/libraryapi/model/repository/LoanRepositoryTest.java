@@ -1,5 +1,6 @@
 package com.costanzo.libraryapi.model.repository;
 
+import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
 import org.junit.jupiter.api.DisplayName;
@@ -10,11 +11,15 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static com.costanzo.libraryapi.model.repository.BookRepositoryTest.createNewBook;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,39 +49,212 @@ public class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("Deve buscar um empréstimo pelo isbn do livro ou customer")
-    public void findByBookIsbnOrCustomerTest(){
+    @DisplayName("Deve buscar um empréstimo pelo isbn do livro e customer")
+    public void findByBookIsbnAndCustomerTest(){
         //cenaŕio
        Loan loan = createAndPersistLoan(LocalDate.now());
+       LoanFilterDTO filter = LoanFilterDTO.builder().isbn("123").customer("Fulano").build();
 
-       Page<Loan> result = repository.findByBookIsbnOrCustomer("123", "Fulano", PageRequest.of(0,10));
+       Page<Loan> result = repository.findAll(LoanSpecification.of(filter), PageRequest.of(0,10));
 
-        assertThat(result.getContent()).hasSize(1);
+        assertThat(result.getContent()).hasSize(1).contains(loan);
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
         assertThat(result.getPageable().getPageNumber()).isEqualTo(0);
         assertThat(result.getTotalElements()).isEqualTo(1);
 
     }
 
-/*
+    @Test
+    @DisplayName("Deve aplicar apenas os filtros informados")
+    public void findByOptionalFiltersTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now().minusDays(10));
+        loan.setCustomerEmail("fulano@email.com");
+        Book otherBook = createNewBook("456");
+        entityManager.persist(otherBook);
+        Loan returnedLoan = Loan.builder().book(otherBook).customer("Fulano").returned(true).loanDate(LocalDate.now()).build();
+        entityManager.persist(returnedLoan);
+
+        Page<Loan> byCustomer = repository.findAll(
+                LoanSpecification.of(LoanFilterDTO.builder().customer("Fulano").build()), PageRequest.of(0,10));
+        Page<Loan> notReturned = repository.findAll(
+                LoanSpecification.of(LoanFilterDTO.builder().customer("Fulano").returned(false).build()), PageRequest.of(0,10));
+        Page<Loan> byDateAndEmail = repository.findAll(
+                LoanSpecification.of(LoanFilterDTO.builder()
+                        .email("fulano@email.com")
+                        .loanDateFrom(LocalDate.now().minusDays(15))
+                        .loanDateTo(LocalDate.now().minusDays(5))
+                        .build()), PageRequest.of(0,10));
+        Page<Loan> otherIsbnAndCustomer = repository.findAll(
+                LoanSpecification.of(LoanFilterDTO.builder().isbn("123").customer("Ciclano").build()), PageRequest.of(0,10));
+
+        assertThat(byCustomer.getTotalElements()).isEqualTo(2);
+        assertThat(notReturned.getContent()).containsExactly(loan);
+        assertThat(byDateAndEmail.getContent()).containsExactly(loan);
+        assertThat(otherIsbnAndCustomer.getContent()).isEmpty();
+    }
+
     @Test
     @DisplayName("Deve retornar empréstimos cuja data empréstimo for menor ou igual  a três dias atrás e não retornados")
     public void findByLoanDateLessThanAndNotReturned(){
         Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findLateLoans(LocalDateTime.now(), LocalDate.now().minusDays(4));
 
         assertThat(result).hasSize(1).contains(loan);
-    }*/
+    }
 
     @Test
     @DisplayName("Deve retornar vazio quando não houver empréstimos atrasados.")
     public void notFindByLoanDateLessThanAndNotReturned(){
         Loan loan = createAndPersistLoan(LocalDate.now());
-        List<Loan> result = repository.findByLoanDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findLateLoans(LocalDateTime.now(), LocalDate.now().minusDays(4));
 
         assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve devolver empréstimos em lote por id e pelo isbn do livro")
+    public void returnByIdsAndIsbnsTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Book otherBook = createNewBook("456");
+        entityManager.persist(otherBook);
+        Loan otherLoan = Loan.builder().book(otherBook).customer("Ciclano").loanDate(LocalDate.now()).build();
+        entityManager.persist(otherLoan);
+
+        List<Long> byIsbn = repository.findOpenIdsByIsbnsForUpdate(Arrays.asList("456", "789"));
+        int returned = repository.returnByIds(Arrays.asList(loan.getId(), byIsbn.get(0), 999l));
+
+        assertThat(byIsbn).containsExactly(otherLoan.getId());
+        assertThat(returned).isEqualTo(2);
+        entityManager.clear();
+        assertThat(repository.existsByBookAndNotReturned(loan.getBook())).isFalse();
+        assertThat(repository.existsByBookAndNotReturned(otherBook)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve retornar os ids dos livros com empréstimo em aberto")
+    public void findNotReturnedBookIdsTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Book freeBook = createNewBook("456");
+        entityManager.persist(freeBook);
+
+        List<Long> result = repository.findNotReturnedBookIds(Arrays.asList(loan.getBook().getId(), freeBook.getId()));
+
+        assertThat(result).containsExactly(loan.getBook().getId());
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos devolvidos antigos para arquivamento e removê-los")
+    public void findReturnedBeforeAndDeleteTest(){
+        Loan oldLoan = createAndPersistLoan(LocalDate.now().minusYears(2));
+        oldLoan.setReturned(true);
+        Book otherBook = createNewBook("456");
+        entityManager.persist(otherBook);
+        entityManager.persist(Loan.builder().book(otherBook).customer("Fulano").loanDate(LocalDate.now().minusYears(2)).build());
+        entityManager.flush();
+
+        List<Loan> result = repository.findReturnedBefore(LocalDate.now().minusYears(1), PageRequest.of(0, 10));
+        int deleted = repository.deleteByIds(Arrays.asList(oldLoan.getId()));
+
+        assertThat(result).containsExactly(oldLoan);
+        assertThat(deleted).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve retornar zero ao devolver um empréstimo inexistente")
+    public void updateReturnedNotFoundTest(){
+        int updated = repository.updateReturned(999l, true);
+
+        assertThat(updated).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve ignorar empréstimos já devolvidos ao devolver")
+    public void returnOnlyOpenLoansTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        Loan returnedLoan = createAndPersistLoan(LocalDate.now());
+        returnedLoan.setReturned(true);
+        entityManager.flush();
+
+        List<Long> open = repository.findOpenIdsForUpdate(Arrays.asList(loan.getId(), returnedLoan.getId(), 999l));
+        int again = repository.updateReturned(returnedLoan.getId(), true);
+
+        assertThat(open).containsExactly(loan.getId());
+        assertThat(again).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve selecionar apenas os campos pedidos do empréstimo")
+    public void findFieldsTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        LoanFilterDTO filter = LoanFilterDTO.builder().customer("Fulano").build();
+
+        Page<Map<String, Object>> idAndCustomer = repository.findFields(
+                LoanSpecification.of(filter), Arrays.asList("id", "customer"), PageRequest.of(0, 10));
+        Page<Map<String, Object>> withBook = repository.findFields(
+                LoanSpecification.of(filter), Arrays.asList("isbn", "book"), PageRequest.of(0, 10));
+
+        assertThat(idAndCustomer.getTotalElements()).isEqualTo(1);
+        assertThat(idAndCustomer.getContent().get(0)).containsOnlyKeys("id", "customer")
+                .containsEntry("id", loan.getId())
+                .containsEntry("customer", "Fulano");
+        assertThat(withBook.getContent().get(0)).containsOnlyKeys("isbn", "book").containsEntry("isbn", "123");
+        assertThat((Map<String, Object>) withBook.getContent().get(0).get("book"))
+                .containsEntry("id", loan.getBook().getId())
+                .containsEntry("isbn", "123");
+    }
+
+    @Test
+    @DisplayName("Deve guardar fora da linha os valores da ordenação por campos não pedidos")
+    public void findFieldsSortValuesTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+
+        Page<Map<String, Object>> result = repository.findFields(LoanSpecification.of(new LoanFilterDTO()),
+                Arrays.asList("id", "customer"), PageRequest.of(0, 10, Sort.by("book.title", "customer")));
+
+        FieldProjection.Row row = (FieldProjection.Row) result.getContent().get(0);
+        assertThat(row).containsOnlyKeys("id", "customer");
+        assertThat(row.getSortValue("book.title")).isEqualTo(loan.getBook().getTitle());
+        assertThat(row.getSortValue("customer")).isEqualTo("Fulano");
+        assertThat(result.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve buscar os empréstimos vencidos pelo vencimento ou, sem ele, pela data do empréstimo")
+    public void findLateLoansTest(){
+        Loan late = createAndPersistLoan(LocalDate.now());
+        late.setDueDate(LocalDateTime.now().minusMinutes(1));
+        Loan notDue = createAndPersistLoan(LocalDate.now().minusDays(10));
+        notDue.setDueDate(LocalDateTime.now().plusDays(1));
+        Loan legacy = createAndPersistLoan(LocalDate.now().minusDays(5));
+        createAndPersistLoan(LocalDate.now().minusDays(1));
+        Loan returned = createAndPersistLoan(LocalDate.now());
+        returned.setDueDate(LocalDateTime.now().minusDays(1));
+        returned.setReturned(true);
+        entityManager.flush();
+
+        List<Loan> result = repository.findLateLoans(LocalDateTime.now(), LocalDate.now().minusDays(4));
+
+        assertThat(result).containsExactlyInAnyOrder(late, legacy);
+    }
+
+    @Test
+    @DisplayName("Deve marcar o aviso de atraso uma única vez")
+    public void markOverdueNotifiedTest(){
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        loan.setDueDate(LocalDateTime.now().minusMinutes(1));
+        loan.setCustomerEmail("fulano@email.com");
+        entityManager.flush();
+
+        List<Object[]> due = repository.findDueWithoutNotice(LocalDateTime.now().plusDays(1));
+        int first = repository.markOverdueNotified(loan.getId(), LocalDateTime.now());
+        int second = repository.markOverdueNotified(loan.getId(), LocalDateTime.now());
+
+        assertThat(due).extracting(row -> row[0]).containsExactly(loan.getId());
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(0);
+        assertThat(repository.findCustomerEmails(Arrays.asList(loan.getId()))).containsExactly("fulano@email.com");
+    }
+
     public Loan createAndPersistLoan(LocalDate localDate){
         Book book = createNewBook("123");
         entityManager.persist(book);
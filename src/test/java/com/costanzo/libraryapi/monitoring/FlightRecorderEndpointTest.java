@@ -0,0 +1,53 @@
+package com.costanzo.libraryapi.monitoring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlightRecorderEndpointTest {
+
+    FlightRecorderEndpoint endpoint;
+
+    @BeforeEach
+    public void setUp(){
+        this.endpoint = new FlightRecorderEndpoint();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        endpoint.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve retornar 404 ao baixar sem gravação iniciada")
+    public void downloadWithoutRecordingTest() throws Exception {
+        WebEndpointResponse<Resource> response = endpoint.download();
+
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+
+    @Test
+    @DisplayName("Deve iniciar, parar e baixar uma gravação com os eventos da aplicação")
+    public void startStopAndDownloadTest() throws Exception {
+        Map<String, Object> started = endpoint.start("default", null);
+        assertThat(started.get("state")).isEqualTo("RUNNING");
+
+        LoanCreatedEvent event = new LoanCreatedEvent();
+        event.loanId = 1L;
+        event.commit();
+
+        Map<String, Object> stopped = endpoint.stop();
+        assertThat(stopped.get("state")).isEqualTo("STOPPED");
+
+        WebEndpointResponse<Resource> response = endpoint.download();
+        assertThat(response.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        assertThat(response.getBody().contentLength()).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.costanzo.libraryapi.monitoring;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeavyHittersTest {
+
+    @Test
+    @DisplayName("Deve encontrar as chaves mais frequentes sem subestimar as contagens")
+    public void topKeysTest() {
+        HeavyHitters hitters = new HeavyHitters(4, 512, 3);
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            hitters.add("isbn-" + random.nextInt(5_000));
+            if (i % 4 == 0) hitters.add("hot-a");
+            if (i % 8 == 0) hitters.add("hot-b");
+            if (i % 16 == 0) hitters.add("hot-c");
+        }
+
+        assertThat(hitters.top()).extracting(HeavyHitters.HotKey::getKey).containsExactly("hot-a", "hot-b", "hot-c");
+        assertThat(hitters.estimate("hot-a")).isGreaterThanOrEqualTo(5_000);
+        assertThat(hitters.estimate("hot-c")).isGreaterThanOrEqualTo(1_250);
+        assertThat(hitters.isHot("hot-b")).isTrue();
+        assertThat(hitters.isHot("isbn-1")).isFalse();
+        assertThat(hitters.getTotal()).isEqualTo(20_000 + 5_000 + 2_500 + 1_250);
+    }
+
+    @Test
+    @DisplayName("Deve reduzir as contagens pela metade no decaimento")
+    public void decayTest() {
+        HeavyHitters hitters = new HeavyHitters(4, 512, 3);
+        for (int i = 0; i < 100; i++) {
+            hitters.add("old");
+        }
+        hitters.decay();
+        for (int i = 0; i < 60; i++) {
+            hitters.add("new");
+        }
+
+        assertThat(hitters.estimate("old")).isEqualTo(50);
+        assertThat(hitters.top()).extracting(HeavyHitters.HotKey::getKey).containsExactly("new", "old");
+    }
+
+    @Test
+    @DisplayName("Não deve contar as chaves registradas com o rastreador suspenso")
+    public void suspendedTrackerTest() {
+        HotKeyTracker tracker = new HotKeyTracker(true, 4, 512, 3);
+
+        try (HotKeyTracker.Scope suspended = HotKeyTracker.suspend()) {
+            tracker.record(HotKeyTracker.Stream.BOOK, 1l);
+        }
+        tracker.record(HotKeyTracker.Stream.BOOK, 2l);
+
+        assertThat(tracker.total(HotKeyTracker.Stream.BOOK)).isEqualTo(1);
+        assertThat(tracker.top(HotKeyTracker.Stream.BOOK)).extracting(HeavyHitters.HotKey::getKey).containsExactly("2");
+    }
+}
@@ -0,0 +1,151 @@
+package com.costanzo.libraryapi.scheduling;
+
+import com.costanzo.libraryapi.LibraryApiApplication;
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.model.entity.JobRun;
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.repository.BookRepository;
+import com.costanzo.libraryapi.model.repository.JobRunRepository;
+import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.service.EmailService;
+import com.costanzo.libraryapi.service.ScheduleService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//duas instâncias da aplicação no mesmo processo, compartilhando o mesmo banco
+public class JobRunnerClusterTest {
+
+    static final int LATE_LOANS = 6;
+
+    static final List<String> sentMails = Collections.synchronizedList(new ArrayList<>());
+
+    static ConfigurableApplicationContext nodeA;
+    static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    public static void startNodes() {
+        String url = "jdbc:h2:mem:cluster-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        nodeA = start(url);
+        nodeB = start(url);
+
+        Book book = nodeA.getBean(BookRepository.class).save(Book.builder().isbn("123").title("T").author("A").build());
+        LoanRepository loans = nodeA.getBean(LoanRepository.class);
+        for (int i = 0; i < LATE_LOANS; i++) {
+            loans.save(Loan.builder().book(book).customer("Fulano " + i).customerEmail("fulano" + i + "@email.com")
+                    .loanDate(LocalDate.now().minusDays(10)).build());
+        }
+    }
+
+    @AfterAll
+    public static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        sentMails.clear();
+    }
+
+    @Test
+    @DisplayName("Deve enviar os e-mails de atraso por uma única instância")
+    public void singleRunAcrossNodesTest() throws Exception {
+        runOnBothNodes();
+
+        assertThat(sentMails).hasSize(LATE_LOANS).doesNotHaveDuplicates();
+        List<JobRun> runs = runs().stream().filter(run -> run.getPartitionIndex() == null).collect(Collectors.toList());
+        assertThat(runs).hasSize(1);
+        assertThat(runs.get(0).getStatus()).isEqualTo(JobRun.Status.SUCCEEDED);
+        assertThat(runs.get(0).getItems()).isEqualTo(LATE_LOANS);
+        assertThat(runs.get(0).getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve dividir os empréstimos atrasados em partições processadas uma única vez")
+    public void partitionedRunAcrossNodesTest() throws Exception {
+        ReflectionTestUtils.setField(nodeA.getBean(ScheduleService.class), "partitions", 3);
+        ReflectionTestUtils.setField(nodeB.getBean(ScheduleService.class), "partitions", 3);
+        try {
+            runOnBothNodes();
+        } finally {
+            ReflectionTestUtils.setField(nodeA.getBean(ScheduleService.class), "partitions", 1);
+            ReflectionTestUtils.setField(nodeB.getBean(ScheduleService.class), "partitions", 1);
+        }
+
+        assertThat(sentMails).hasSize(LATE_LOANS).doesNotHaveDuplicates();
+        List<JobRun> runs = runs().stream().filter(run -> run.getPartitionIndex() != null).collect(Collectors.toList());
+        assertThat(runs).extracting(JobRun::getPartitionIndex).containsExactlyInAnyOrder(0, 1, 2);
+        assertThat(runs).allMatch(run -> run.getStatus() == JobRun.Status.SUCCEEDED && run.getPartitions() == 3);
+        assertThat(runs.stream().mapToInt(JobRun::getItems).sum()).isEqualTo(LATE_LOANS);
+    }
+
+    private static void runOnBothNodes() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (ConfigurableApplicationContext node : new ConfigurableApplicationContext[]{nodeA, nodeB}) {
+                ScheduleService scheduleService = node.getBean(ScheduleService.class);
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    scheduleService.sendMailToLateLoans();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<JobRun> runs() {
+        return nodeB.getBean(JobRunRepository.class).findByJobOrderByStartedAtDesc(ScheduleService.LATE_LOANS_JOB);
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(LibraryApiApplication.class, RecordingMail.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + url,
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "application.warmup.enabled=false",
+                        "application.catalogue.snapshot.enabled=false",
+                        "spring.boot.admin.client.enabled=false")
+                .run();
+    }
+
+    static class RecordingMail {
+
+        @Bean
+        @Primary
+        public EmailService recordingEmailService() {
+            return (message, mails) -> sentMails.addAll(mails);
+        }
+    }
+}
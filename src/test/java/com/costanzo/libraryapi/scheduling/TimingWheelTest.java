@@ -0,0 +1,55 @@
+package com.costanzo.libraryapi.scheduling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+    @Test
+    @DisplayName("Deve disparar cada chave uma única vez, nunca antes do prazo, em todos os níveis")
+    public void fireAtDeadlineTest() {
+        //4 slots de 10ms em 3 níveis: cobre 640ms, o resto fica no overflow
+        TimingWheel<Integer> wheel = new TimingWheel<>(10, 4, 3, 0);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+        for (int key = 0; key < 2_000; key++) {
+            long deadline = random.nextInt(5_000);
+            deadlines.put(key, deadline);
+            wheel.schedule(key, deadline);
+        }
+
+        Map<Integer, Long> fired = new HashMap<>();
+        for (long now = 0; now <= 5_100; now += 1 + random.nextInt(25)) {
+            for (Integer key : wheel.advance(now)) {
+                assertThat(fired.put(key, now)).isNull();
+            }
+        }
+
+        assertThat(fired).hasSameSizeAs(deadlines);
+        assertThat(wheel.size()).isZero();
+        deadlines.forEach((key, deadline) -> assertThat(fired.get(key)).isBetween(deadline, deadline + 10 + 25));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar chaves canceladas e usar o prazo mais recente ao reagendar")
+    public void cancelAndRescheduleTest() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 3, 1_000);
+        wheel.schedule("cancelado", 1_050);
+        wheel.schedule("adiado", 1_050);
+        wheel.schedule("vencido", 900);
+
+        assertThat(wheel.cancel("cancelado")).isTrue();
+        wheel.schedule("adiado", 3_000);
+
+        assertThat(wheel.advance(1_000)).containsExactly("vencido");
+        assertThat(wheel.advance(2_990)).isEmpty();
+        assertThat(wheel.advance(3_000)).containsExactly("adiado");
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -1,9 +1,17 @@
 package com.costanzo.libraryapi.service;
 
+import com.costanzo.libraryapi.cache.BookCache;
+import com.costanzo.libraryapi.cache.BookResponseCache;
+import com.costanzo.libraryapi.cache.BookSearchCache;
+import com.costanzo.libraryapi.events.DomainEventPublisher;
 import com.costanzo.libraryapi.exception.BusinessException;
+import com.costanzo.libraryapi.invalidation.InvalidationBus;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.repository.BookRepository;
+import com.costanzo.libraryapi.monitoring.HotKeyTracker;
 import com.costanzo.libraryapi.service.impl.BookServiceImpl;
+import com.costanzo.libraryapi.sharding.ScatterGather;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,9 +26,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
@@ -33,10 +50,18 @@ public class BookServiceTest {
     BookService service;
     @MockBean
     BookRepository repository;
+    @MockBean
+    ScatterGather scatterGather;
+    @MockBean
+    InvalidationBus invalidationBus;
+    @MockBean
+    DomainEventPublisher domainEvents;
 
     @BeforeEach//executa antes de cada metodo de teste
     public void setUp(){
-        this.service =  new BookServiceImpl(repository);
+        this.service =  new BookServiceImpl(repository, new BookCache(100), new BookSearchCache(100, new SimpleMeterRegistry()),
+                new BookResponseCache(100, new HotKeyTracker(true, 4, 256, 10), new SimpleMeterRegistry()),
+                scatterGather, invalidationBus, domainEvents);
     }
 
     @Test
@@ -101,6 +126,22 @@ public class BookServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Deve obter um livro do cache sem consultar a base")
+    public void getByIdFromCacheTest(){
+        Long id = 1l;
+        Book book = createValidBook();
+        book.setId(id);
+        when(repository.findById(id)).thenReturn(Optional.of(book));
+
+        service.getByID(id);
+        Optional<Book> foundbook = service.getByID(id);
+
+        assertThat(foundbook.isPresent()).isTrue();
+        assertThat(foundbook.get().getIsbn()).isEqualTo(book.getIsbn());
+        verify(repository, Mockito.times(1)).findById(id);
+    }
+
     @Test
     @DisplayName("Deve retornar vazio ao obter  um livro por Id quando ele não existe na base")
     public void bookNotFoundByIdTest(){
@@ -177,6 +218,50 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve atualizar um livro pelo id e reler a linha atualizada")
+    public void updateByIdTest(){
+        Long id = 1l;
+        Book changes = Book.builder().title("Novo título").author("Ciclano").build();
+        Book updatedBook = createValidBook();
+        updatedBook.setId(id);
+        updatedBook.setTitle("Novo título");
+        updatedBook.setAuthor("Ciclano");
+        when(repository.updateTitleAndAuthor(Mockito.eq(id), Mockito.eq("Novo título"), Mockito.eq("Ciclano"), Mockito.any()))
+                .thenReturn(1);
+        when(repository.findById(id)).thenReturn(Optional.of(updatedBook));
+
+        Optional<Book> book = service.updateById(id, changes);
+
+        assertThat(book.isPresent()).isTrue();
+        assertThat(book.get().getTitle()).isEqualTo("Novo título");
+        assertThat(book.get().getIsbn()).isEqualTo("123");
+        Mockito.verify(repository).findById(id);
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio ao atualizar um livro inexistente pelo id")
+    public void updateByIdNotFoundTest(){
+        when(repository.updateTitleAndAuthor(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(0);
+
+        Optional<Book> book = service.updateById(1l, createValidBook());
+
+        assertThat(book.isPresent()).isFalse();
+        Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Não deve publicar invalidação ao deletar pelo id um livro inexistente")
+    public void deleteByIdNotFoundTest(){
+        when(repository.deleteBookById(1l)).thenReturn(0);
+
+        boolean deleted = service.deleteById(1l);
+
+        assertThat(deleted).isFalse();
+        Mockito.verify(invalidationBus, Mockito.never()).publishBook(Mockito.any());
+        Mockito.verify(domainEvents, Mockito.never()).bookDeleted(Mockito.any());
+    }
+
     @Test
     @DisplayName("Deve filtrar livros pelas propriedades")
     public void findBookTest(){
@@ -195,6 +280,68 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve reutilizar o resultado da busca até o catálogo ser alterado")
+    public void findBookCachedTest(){
+        Book book = createValidBook();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<Book> page = new PageImpl<Book>(Arrays.asList(book), pageRequest, 1);
+        when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class))).thenReturn(page);
+        when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
+        when(repository.save(Mockito.any(Book.class))).thenReturn(Book.builder().id(2l).isbn("456").build());
+
+        service.find(Book.builder().title("As Aventuras").build(), pageRequest);
+        Page<Book> cached = service.find(Book.builder().title("as aventuras").build(), pageRequest);
+        try (BookSearchCache.Scope bypass = BookSearchCache.bypass()) {
+            service.find(Book.builder().title("as aventuras").build(), pageRequest);
+        }
+        service.save(Book.builder().isbn("456").build());
+        service.find(Book.builder().title("as aventuras").build(), pageRequest);
+
+        assertThat(cached.getTotalElements()).isEqualTo(1);
+        assertThat(cached.getContent().get(0).getIsbn()).isEqualTo(book.getIsbn());
+        Mockito.verify(repository, Mockito.times(3)).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve fazer uma única consulta para leituras simultâneas do mesmo livro")
+    public void getByIdSingleFlightTest() throws Exception {
+        int requests = 50;
+        CountDownLatch started = new CountDownLatch(requests);
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findById(1l)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(Book.builder().id(1l).isbn("123").build());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<Optional<Book>>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    return service.getByID(1l);
+                }));
+            }
+            started.await(5, TimeUnit.SECONDS);
+            //dá tempo para todas as threads chegarem na consulta em andamento
+            Thread.sleep(200);
+            release.countDown();
+
+            Set<Book> books = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<Optional<Book>> result : results) {
+                Optional<Book> book = result.get(5, TimeUnit.SECONDS);
+                assertThat(book).isPresent();
+                assertThat(book.get().getIsbn()).isEqualTo("123");
+                books.add(book.get());
+            }
+            assertThat(books).hasSize(requests);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(repository, Mockito.times(1)).findById(1l);
+    }
+
     @Test
     @DisplayName("Deve obter um livro pelo Isbn")
     public void getBookByIsbnTest(){
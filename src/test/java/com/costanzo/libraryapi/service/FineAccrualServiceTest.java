@@ -0,0 +1,138 @@
+package com.costanzo.libraryapi.service;
+
+import com.costanzo.libraryapi.config.LoanProperties;
+import com.costanzo.libraryapi.model.entity.Book;
+import com.costanzo.libraryapi.model.entity.Fine;
+import com.costanzo.libraryapi.model.entity.JobCheckpoint;
+import com.costanzo.libraryapi.model.entity.Loan;
+import com.costanzo.libraryapi.model.repository.BookRepository;
+import com.costanzo.libraryapi.model.repository.FineRepository;
+import com.costanzo.libraryapi.model.repository.JobCheckpointRepository;
+import com.costanzo.libraryapi.model.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class FineAccrualServiceTest {
+
+    static final int OVERDUE = 25;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    FineRepository fineRepository;
+
+    @Autowired
+    JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    LocalDate today = LocalDate.now();
+
+    List<Long> overdueIds;
+
+    @BeforeEach
+    public void setUp() {
+        fineRepository.deleteAll();
+        checkpointRepository.deleteAll();
+        loanRepository.deleteAll();
+        Book book = bookRepository.save(Book.builder().isbn("123").title("T").author("A").build());
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < OVERDUE; i++) {
+            loans.add(loan(book, LocalDateTime.now().minusDays(1 + i % 3), null));
+        }
+        //ainda no prazo, devolvido e vencido só depois do início do dia
+        loans.add(loan(book, LocalDateTime.now().plusDays(2), null));
+        loans.add(loan(book, LocalDateTime.now().minusDays(2), true));
+        loans.add(loan(book, today.atStartOfDay().plusSeconds(1), null));
+        overdueIds = loanRepository.saveAll(loans).stream().limit(OVERDUE).map(Loan::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Deve gerar uma multa por empréstimo atrasado, processando as partições em paralelo")
+    public void accrueFinesTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FineAccrualService service = service(fineRepository, registry);
+
+        int fines = service.accrue(today);
+        int again = service.accrue(today);
+
+        assertThat(fines).isEqualTo(OVERDUE);
+        assertThat(again).isZero();
+        assertThat(fineRepository.findAll()).extracting(Fine::getLoanId).containsExactlyInAnyOrderElementsOf(overdueIds);
+        assertThat(fineRepository.findAll()).allMatch(fine ->
+                fine.getAccrualDate().equals(today) && fine.getAmount().compareTo(new BigDecimal("1.50")) == 0);
+        List<JobCheckpoint> checkpoints = checkpointRepository.findByJobAndRunKeyOrderByPartitionIndex(
+                FineAccrualService.FINES_JOB, today.toString());
+        assertThat(checkpoints).hasSize(4).allMatch(checkpoint -> checkpoint.getFinishedAt() != null);
+        assertThat(checkpoints.stream().mapToInt(JobCheckpoint::getItems).sum()).isEqualTo(OVERDUE);
+        assertThat(registry.get("fines.accrued").counter().count()).isEqualTo(OVERDUE);
+        assertThat(registry.get("fines.accrual.partition").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Deve retomar do último lote gravado depois de uma falha, sem duplicar multas")
+    public void resumeAfterFailureTest() {
+        AtomicInteger chunks = new AtomicInteger();
+        FineRepository failing = mock(FineRepository.class, delegatesTo(fineRepository));
+        doAnswer(invocation -> {
+            if (chunks.incrementAndGet() == 4) {
+                throw new IllegalStateException("queda simulada");
+            }
+            return fineRepository.saveAll(invocation.<Iterable<Fine>>getArgument(0));
+        }).when(failing).saveAll(anyIterable());
+
+        Throwable failure = catchThrowable(() -> service(failing, new SimpleMeterRegistry()).accrue(today));
+        long writtenBeforeFailure = fineRepository.countByAccrualDate(today);
+        int resumed = service(fineRepository, new SimpleMeterRegistry()).accrue(today);
+
+        assertThat(failure).hasMessage("queda simulada");
+        assertThat(writtenBeforeFailure).isBetween(1L, OVERDUE - 1L);
+        assertThat(resumed).isEqualTo(OVERDUE - writtenBeforeFailure);
+        assertThat(fineRepository.findAll()).extracting(Fine::getLoanId).containsExactlyInAnyOrderElementsOf(overdueIds);
+    }
+
+    private FineAccrualService service(FineRepository fines, SimpleMeterRegistry registry) {
+        //4 partições, 2 threads e lotes de 3 empréstimos
+        return new FineAccrualService(loanRepository, fines, checkpointRepository, new LoanProperties(), null,
+                transactionManager, new BigDecimal("1.50"), 4, 2, 3, registry);
+    }
+
+    private static Loan loan(Book book, LocalDateTime dueDate, Boolean returned) {
+        return Loan.builder().book(book).customer("Fulano").loanDate(dueDate.toLocalDate().minusDays(4))
+                .dueDate(dueDate).returned(returned).build();
+    }
+}
@@ -1,11 +1,17 @@
 package com.costanzo.libraryapi.service;
 
 import com.costanzo.libraryapi.api.dto.LoanFilterDTO;
+import com.costanzo.libraryapi.archive.LoanArchive;
+import com.costanzo.libraryapi.config.LoanProperties;
+import com.costanzo.libraryapi.events.DomainEventPublisher;
 import com.costanzo.libraryapi.exception.BusinessException;
+import com.costanzo.libraryapi.invalidation.InvalidationBus;
 import com.costanzo.libraryapi.model.entity.Book;
 import com.costanzo.libraryapi.model.entity.Loan;
 import com.costanzo.libraryapi.model.repository.LoanRepository;
+import com.costanzo.libraryapi.scheduling.LoanDueReminders;
 import com.costanzo.libraryapi.service.impl.LoanServiceImpl;
+import com.costanzo.libraryapi.sharding.ScatterGather;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,10 +22,14 @@ import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -37,9 +47,28 @@ public class LoanServiceTest {
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    LoanArchive archive;
+
+    @MockBean
+    ScatterGather scatterGather;
+
+    @MockBean
+    InvalidationBus invalidationBus;
+
+    @MockBean
+    LoanDueReminders dueReminders;
+
+    @MockBean
+    DomainEventPublisher domainEvents;
+
+    LoanProperties loanProperties;
+
     @BeforeEach
     public void setup(){
-        this.service = new LoanServiceImpl(repository);
+        this.loanProperties = new LoanProperties();
+        this.service = new LoanServiceImpl(repository, archive, scatterGather, invalidationBus, loanProperties, dueReminders,
+                domainEvents);
     }
 
 
@@ -72,6 +101,29 @@ public class LoanServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Deve calcular o vencimento pelo prazo do cliente, do livro ou o padrão")
+    public void saveLoanDueDateTest(){
+        loanProperties.getCustomerDays().put("Ciclano", 14);
+        Book book = Book.builder().id(1l).loanDays(7).build();
+        Loan byBook = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now().minusDays(1)).build();
+        Loan byCustomer = Loan.builder().book(book).customer("Ciclano").loanDate(LocalDate.now().minusDays(1)).build();
+        Loan byDefault = Loan.builder().book(Book.builder().id(2l).build()).customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(1)).build();
+        when(repository.save(any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.save(byBook);
+        service.save(byCustomer);
+        service.save(byDefault);
+
+        LocalDateTime yesterday = LocalDate.now().minusDays(1).atStartOfDay();
+        assertThat(byBook.getDueDate()).isEqualTo(yesterday.plusDays(7));
+        assertThat(byCustomer.getDueDate()).isEqualTo(yesterday.plusDays(14));
+        assertThat(byDefault.getDueDate()).isEqualTo(yesterday.plusDays(4));
+        verify(dueReminders).schedule(byBook);
+        verify(domainEvents).loanCreated(byBook);
+    }
+
     @Test
     @DisplayName("Deve lançar um erro de negócio ao salvar um emprestimo com livro já emprestado")
     public void loanedBookSavedTest(){
@@ -96,6 +148,23 @@ public class LoanServiceTest {
     }
 
 
+    @Test
+    @DisplayName("Deve salvar em lote apenas os empréstimos de livros disponíveis")
+    public void saveAllAvailableTest(){
+        Loan availableLoan = createLoan();
+        Loan loanedLoan = createLoan();
+        loanedLoan.setBook(Book.builder().id(2l).build());
+        Loan repeatedLoan = createLoan();
+
+        when(repository.findNotReturnedBookIds(Arrays.asList(1l, 2l, 1l))).thenReturn(Arrays.asList(2l));
+        when(repository.saveAll(Arrays.asList(availableLoan))).thenReturn(Arrays.asList(availableLoan));
+
+        List<Loan> saved = service.saveAllAvailable(Arrays.asList(availableLoan, loanedLoan, repeatedLoan));
+
+        assertThat(saved).containsExactly(availableLoan);
+        verify(repository).saveAll(Arrays.asList(availableLoan));
+    }
+
     @Test
     @DisplayName("Deve obter as informações de um empréstimo pelo ID")
     public void getLoanDetailsTest(){
@@ -134,6 +203,115 @@ public class LoanServiceTest {
        verify(repository).save(loan);
     }
 
+    @Test
+    @DisplayName("Deve informar quando o empréstimo a devolver não existe")
+    public void updateReturnedNotFoundTest(){
+        when(repository.updateReturned(1l, true)).thenReturn(0);
+
+        boolean updated = service.updateReturned(1l, true);
+
+        assertThat(updated).isFalse();
+        verify(repository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve publicar a devolução apenas dos empréstimos que estavam em aberto")
+    public void returnLoansOnlyOpenTest(){
+        List<Long> ids = Arrays.asList(1l, 2l, 3l);
+        when(repository.findOpenIdsForUpdate(ids)).thenReturn(Arrays.asList(2l));
+        when(repository.returnByIds(Arrays.asList(2l))).thenReturn(1);
+
+        int returned = service.returnLoans(ids, null);
+
+        assertThat(returned).isEqualTo(1);
+        verify(invalidationBus).publishLoans(Arrays.asList(2l));
+        verify(domainEvents).loanReturned(2l);
+        verify(dueReminders).cancel(2l);
+        verify(invalidationBus, never()).publishLoan(any());
+        verify(domainEvents, never()).loanReturned(3l);
+    }
+
+    @Test
+    @DisplayName("Deve devolver por isbn publicando cada empréstimo em aberto")
+    public void returnLoansByIsbnTest(){
+        List<Long> ids = Arrays.asList(1l);
+        List<String> isbns = Arrays.asList("123");
+        when(repository.findOpenIdsForUpdate(ids)).thenReturn(Arrays.asList(1l));
+        when(repository.findOpenIdsByIsbnsForUpdate(isbns)).thenReturn(Arrays.asList(1l, 4l));
+        when(repository.returnByIds(Arrays.asList(1l, 4l))).thenReturn(2);
+
+        int returned = service.returnLoans(ids, isbns);
+
+        assertThat(returned).isEqualTo(2);
+        verify(invalidationBus).publishLoans(Arrays.asList(1l, 4l));
+        verify(dueReminders).cancel(1l);
+        verify(dueReminders).cancel(4l);
+        verify(domainEvents).loanReturned(1l);
+        verify(domainEvents).loanReturned(4l);
+        verify(domainEvents, never()).loanReturned(null);
+    }
+
+    @Test
+    @DisplayName("Deve juntar o histórico arquivado depois dos empréstimos da tabela quente")
+    public void getLoansByBookWithArchivedHistoryTest(){
+        Book book = Book.builder().id(1l).build();
+        Loan hotLoan = createLoan();
+        hotLoan.setId(3l);
+        Loan archivedLoan = Loan.builder().id(2l).customer("Fulano").returned(true).loanDate(LocalDate.now().minusYears(2)).build();
+        Loan olderArchivedLoan = Loan.builder().id(1l).customer("Fulano").returned(true).loanDate(LocalDate.now().minusYears(3)).build();
+
+        when(repository.findByBook(book, PageRequest.of(0, 2)))
+                .thenReturn(new PageImpl<>(Arrays.asList(hotLoan), PageRequest.of(0, 2), 1));
+        when(repository.findByBook(book, PageRequest.of(1, 2)))
+                .thenReturn(new PageImpl<>(Arrays.asList(), PageRequest.of(1, 2), 1));
+        when(archive.findByBookId(1l, null, 0, 1))
+                .thenReturn(new PageImpl<>(Arrays.asList(archivedLoan), Pageable.unpaged(), 2));
+        when(archive.findByBookId(1l, null, 1, 2))
+                .thenReturn(new PageImpl<>(Arrays.asList(olderArchivedLoan), Pageable.unpaged(), 2));
+
+        Page<Loan> firstPage = service.getLoansByBook(book, PageRequest.of(0, 2));
+        Page<Loan> secondPage = service.getLoansByBook(book, PageRequest.of(1, 2));
+
+        assertThat(firstPage.getTotalElements()).isEqualTo(3);
+        assertThat(firstPage.getContent()).containsExactly(hotLoan, archivedLoan);
+        assertThat(secondPage.getContent()).containsExactly(olderArchivedLoan);
+        assertThat(secondPage.getContent().get(0).getBook()).isEqualTo(book);
+    }
+
+    @Test
+    @DisplayName("Deve aplicar a ordenação pedida ao juntar o histórico arquivado")
+    public void getLoansByBookSortedTest(){
+        Book book = Book.builder().id(1l).build();
+        Loan hotLoan = createLoan();
+        hotLoan.setId(3l);
+        Loan archivedLoan = Loan.builder().id(2l).customer("Fulano").returned(true).loanDate(LocalDate.now().minusYears(2)).build();
+        Loan olderArchivedLoan = Loan.builder().id(1l).customer("Fulano").returned(true).loanDate(LocalDate.now().minusYears(3)).build();
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by("loanDate"));
+
+        when(repository.findByBook(book, pageRequest))
+                .thenReturn(new PageImpl<>(Arrays.asList(hotLoan), pageRequest, 1));
+        when(archive.findByBookId(eq(1l), any(), eq(0l), eq(2)))
+                .thenReturn(new PageImpl<>(Arrays.asList(olderArchivedLoan, archivedLoan), Pageable.unpaged(), 2));
+
+        Page<Loan> page = service.getLoansByBook(book, pageRequest);
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).containsExactly(olderArchivedLoan, archivedLoan);
+        verify(archive, never()).findByBookId(1l);
+    }
+
+    @Test
+    @DisplayName("Deve dividir os empréstimos atrasados em faixas contínuas de ids")
+    public void getLateLoansByRangeTest(){
+        when(repository.findLateIdRange(any(), any())).thenReturn(Arrays.<Object[]>asList(new Object[]{10l, 19l}));
+
+        service.getLateLoans(0, 3);
+        service.getLateLoans(2, 3);
+
+        verify(repository).findLateLoansInRange(any(), any(), eq(10l), eq(13l));
+        verify(repository).findLateLoansInRange(any(), any(), eq(18l), eq(19l));
+    }
+
     public static Loan createLoan(){
         Book book = Book.builder().id(1l).build();
         return   Loan
@@ -157,7 +335,7 @@ public class LoanServiceTest {
         List<Loan> lista = Arrays.asList(loan);
 
         Page<Loan> page = new PageImpl<Loan>(lista, pageRequest, lista.size());
-        when(repository.findByBookIsbnOrCustomer(anyString(), anyString(), any(PageRequest.class))).thenReturn(page);
+        when(repository.findAll(any(Specification.class), any(PageRequest.class))).thenReturn(page);
         //execução
         Page<Loan> result = service.find(loanFilterDTO, pageRequest);
         //verificação
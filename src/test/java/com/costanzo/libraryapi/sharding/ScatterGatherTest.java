@@ -0,0 +1,101 @@
+package com.costanzo.libraryapi.sharding;
+
+import com.costanzo.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScatterGatherTest {
+
+    Map<String, List<Book>> shards;
+    ScatterGather scatterGather;
+
+    @BeforeEach
+    public void setUp() {
+        shards = new HashMap<>();
+        shards.put("shard0", Arrays.asList(book(1l, "A"), book(2l, "C"), book(3l, "E")));
+        shards.put("shard1", Arrays.asList(book(4l, "B"), book(5l, "D")));
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("shardRouter", new ShardRouter(shards.keySet(), Collections.emptyMap()));
+        scatterGather = new ScatterGather(beanFactory.getBeanProvider(ShardRouter.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ShardContext.clear();
+        scatterGather.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve intercalar as páginas ordenadas de todos os shards")
+    public void mergeSortedPagesTest() {
+        Page<Book> page = scatterGather.find(this::query, PageRequest.of(1, 2, Sort.by("title")));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting(Book::getTitle).containsExactly("C", "D");
+    }
+
+    @Test
+    @DisplayName("Deve intercalar em ordem decrescente")
+    public void mergeDescendingTest() {
+        Page<Book> page = scatterGather.find(this::query, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "title")));
+
+        assertThat(page.getContent()).extracting(Book::getTitle).containsExactly("E", "D", "C");
+    }
+
+    @Test
+    @DisplayName("Deve intercalar linhas de sparse fieldsets por uma propriedade aninhada")
+    public void mergeNestedMapRowsTest() {
+        List<Page<Map<String, Object>>> pages = Arrays.asList(
+                new PageImpl<>(Arrays.asList(row("A"), row("C"))),
+                new PageImpl<>(Arrays.asList(row("B"), row("D"))));
+
+        List<Map<String, Object>> merged = ScatterGather.merge(pages, ScatterGather.comparator(Sort.by("book.title")));
+
+        assertThat(merged).extracting(row -> (Object) ((Map<?, ?>) row.get("book")).get("title"))
+                .containsExactly("A", "B", "C", "D");
+    }
+
+    @Test
+    @DisplayName("Deve buscar em todos os shards somente quando pedido com X-Branch: *")
+    public void crossBranchTest() {
+        assertThat(scatterGather.isCrossBranch()).isFalse();
+
+        ShardContext.setBranch(ShardContext.ALL_BRANCHES);
+
+        assertThat(scatterGather.isCrossBranch()).isTrue();
+    }
+
+    //simula o repositório de cada shard, ordenando e paginando os dados do shard corrente
+    private Page<Book> query(Pageable pageable) {
+        List<Book> books = shards.get(ShardContext.getShard()).stream()
+                .sorted(ScatterGather.comparator(pageable.getSort()))
+                .collect(Collectors.toList());
+        int to = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), books.size());
+        return new PageImpl<>(books.subList((int) pageable.getOffset(), to), pageable, books.size());
+    }
+
+    private static Map<String, Object> row(String title) {
+        return Collections.singletonMap("book", Collections.singletonMap("title", title));
+    }
+
+    private static Book book(Long id, String title) {
+        return Book.builder().id(id).title(title).isbn(String.valueOf(id)).author("Fulano").build();
+    }
+}